@@ -0,0 +1,106 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Size and time of the adaptive sticker encoder against lossy-only WebP on a generated corpus of
+ * flat artwork, gradients and noisy photo-like images. Results are logged under the "StickerEncode"
+ * tag; run with {@code adb logcat -s StickerEncode}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StickerEncodeCorpusTest {
+
+    private static final String TAG = "StickerEncode";
+    private static final int MAX_BYTES = 100 * 1024;
+    private static final int PER_KIND = 8;
+
+    @Test
+    public void adaptiveEncodeStaysWithinBudgetAndReportsStats() {
+        Random random = new Random(42);
+        String[] kinds = {"flat", "gradient", "photo"};
+        for (int k = 0; k < kinds.length; k++) {
+            long adaptiveBytes = 0, lossyBytes = 0, adaptiveNanos = 0, lossyNanos = 0;
+            int lossyAttempts = 0, adaptiveAttempts = 0;
+            for (int i = 0; i < PER_KIND; i++) {
+                Bitmap bitmap = sample(k, random);
+
+                long start = System.nanoTime();
+                int lossy = ImageHelper.encodeWithinLimit(bitmap, Bitmap.CompressFormat.WEBP, MAX_BYTES).size();
+                lossyNanos += System.nanoTime() - start;
+                lossyBytes += lossy;
+                int attempts = ImageHelper.lastEncodeAttempts();
+                lossyAttempts += attempts;
+                assertTrue(kinds[k] + " #" + i + ": " + attempts + " lossy encodes", attempts <= 5);
+
+                start = System.nanoTime();
+                int adaptive = ImageHelper.encodeSticker(bitmap, MAX_BYTES).size();
+                adaptiveNanos += System.nanoTime() - start;
+                adaptiveBytes += adaptive;
+                adaptiveAttempts += ImageHelper.lastEncodeAttempts();
+
+                assertTrue(kinds[k] + " #" + i + ": " + adaptive + " bytes",
+                        adaptive <= MAX_BYTES || adaptive <= lossy);
+                bitmap.recycle();
+            }
+            Log.i(TAG, String.format(Locale.US,
+                    "%s x%d: adaptive avg %d B %.1f ms %.1f encodes, lossy avg %d B %.1f ms %.1f encodes",
+                    kinds[k], PER_KIND, adaptiveBytes / PER_KIND, adaptiveNanos / 1e6 / PER_KIND,
+                    adaptiveAttempts / (double) PER_KIND, lossyBytes / PER_KIND, lossyNanos / 1e6 / PER_KIND,
+                    lossyAttempts / (double) PER_KIND));
+        }
+    }
+
+    private static Bitmap sample(int kind, Random random) {
+        int size = ImageHelper.STICKER_SIZE;
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        switch (kind) {
+            case 0:
+                // Cartoon-like: a few solid shapes with outlines on transparency.
+                for (int s = 0; s < 6; s++) {
+                    float cx = random.nextInt(size), cy = random.nextInt(size), r = 40 + random.nextInt(120);
+                    paint.setStyle(Paint.Style.FILL);
+                    paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+                    canvas.drawCircle(cx, cy, r, paint);
+                    paint.setStyle(Paint.Style.STROKE);
+                    paint.setStrokeWidth(8f);
+                    paint.setColor(Color.BLACK);
+                    canvas.drawCircle(cx, cy, r, paint);
+                }
+                break;
+            case 1:
+                paint.setShader(new LinearGradient(0, 0, size, size,
+                        Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)),
+                        Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)),
+                        Shader.TileMode.CLAMP));
+                canvas.drawRect(0, 0, size, size, paint);
+                break;
+            default:
+                int[] pixels = new int[size * size];
+                for (int p = 0; p < pixels.length; p++) {
+                    int base = 96 + (p % size) / 4;
+                    pixels[p] = Color.rgb(base + random.nextInt(32), base / 2 + random.nextInt(32), random.nextInt(64));
+                }
+                bitmap.setPixels(pixels, 0, size, 0, 0, size, size);
+                break;
+        }
+        return bitmap;
+    }
+}
@@ -14,16 +14,17 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pratikpatil.stickerrr.createpack.ContentsJsonWriter;
+import com.pratikpatil.stickerrr.createpack.PackStickersModel;
 import com.pratikpatil.stickerrr.createpack.PackStorage;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -44,21 +45,26 @@ public class CreatePackActivity extends AppCompatActivity {
     private int step = 1;
     private String packIdentifier;
     private Uri trayUri;
-    private final List<Sticker> stickers = new ArrayList<>();
+    private PackStickersModel model;
+    /** The model's list, so it survives recreation along with a running import. */
+    private List<Sticker> stickers;
     private CreateStickerListAdapter stickerAdapter;
     private PackStorage packStorage;
+    private StickerImportUi importUi;
 
     private final ActivityResultLauncher<Intent> pickImage = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() != RESULT_OK || result.getData() == null) return;
-                Uri uri = result.getData().getData();
-                if (uri == null) return;
+                List<Uri> uris = StickerImportUi.pickedUris(result.getData());
+                if (uris.isEmpty()) return;
                 if (step == 1) {
-                    trayUri = uri;
-                    imgTrayPreview.setImageURI(uri);
+                    trayUri = uris.get(0);
+                    imgTrayPreview.setImageURI(trayUri);
+                } else if (uris.size() == 1) {
+                    launchStickerEditor(uris.get(0));
                 } else {
-                    launchStickerEditor(uri);
+                    importUi.importStickers(uris);
                 }
             });
 
@@ -93,6 +99,9 @@ public class CreatePackActivity extends AppCompatActivity {
         }
 
         packStorage = new PackStorage(this);
+        model = new ViewModelProvider(this).get(PackStickersModel.class);
+        packIdentifier = model.getPackIdentifier();
+        stickers = model.getStickers();
 
         editPackName = findViewById(R.id.editPackName);
         editPublisher = findViewById(R.id.editPublisher);
@@ -108,6 +117,9 @@ public class CreatePackActivity extends AppCompatActivity {
         stickerAdapter = new CreateStickerListAdapter(stickers);
         recyclerStickers.setLayoutManager(new LinearLayoutManager(this));
         recyclerStickers.setAdapter(stickerAdapter);
+        importUi = new StickerImportUi(this, model, packStorage, stickerAdapter, MAX_STICKERS);
+        // Recreated after the tray was saved: go straight back to the sticker step.
+        if (packIdentifier != null) showStickerStep();
 
         btnPickTray.setOnClickListener(v -> {
             Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*");
@@ -129,11 +141,8 @@ public class CreatePackActivity extends AppCompatActivity {
                 packIdentifier = packStorage.createNewPackIdentifier();
                 try {
                     String trayFile = packStorage.saveTrayIcon(packIdentifier, trayUri);
-                    step = 2;
-                    step1Layout.setVisibility(View.GONE);
-                    step2Layout.setVisibility(View.VISIBLE);
-                    btnNext.setVisibility(View.GONE);
-                    btnSave.setVisibility(View.VISIBLE);
+                    model.setPack(packIdentifier, Collections.emptyList(), 1);
+                    showStickerStep();
                 } catch (Exception e) {
                     Toast.makeText(this, "Failed to save tray: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 }
@@ -141,11 +150,28 @@ public class CreatePackActivity extends AppCompatActivity {
         });
 
         btnPickImage.setOnClickListener(v -> {
-            Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*");
+            Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*")
+                    .putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
             pickImage.launch(Intent.createChooser(i, getString(R.string.pick_image)));
         });
 
         btnSave.setOnClickListener(v -> savePack());
+        model.attach(importUi);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running import carries on in the model; it is cancelled once this screen is finished.
+        model.detach(importUi);
+    }
+
+    private void showStickerStep() {
+        step = 2;
+        step1Layout.setVisibility(View.GONE);
+        step2Layout.setVisibility(View.VISIBLE);
+        btnNext.setVisibility(View.GONE);
+        btnSave.setVisibility(View.VISIBLE);
     }
 
     @Override
@@ -161,12 +187,9 @@ public class CreatePackActivity extends AppCompatActivity {
     }
 
     private void addStickerFromUri(Uri uri) {
-        if (stickers.size() >= MAX_STICKERS) {
-            Toast.makeText(this, "Max " + MAX_STICKERS + " stickers", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        if (!importUi.hasRoom()) return;
         try {
-            int index = stickers.size() + 1;
+            int index = model.reserveStickerIndices(1);
             List<String> emojis = Collections.singletonList("😀");
             Sticker s = packStorage.addStickerImageToPack(packIdentifier, index, uri, emojis, "");
             stickers.add(s);
@@ -1,28 +1,25 @@
 package com.pratikpatil.stickerrr;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Bundle;
-import android.view.View;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.canhub.cropper.CropImageView;
-import com.pratikpatil.stickerrr.createpack.ImageHelper;
-
-import java.io.IOException;
-import java.util.concurrent.Executors;
 
 /**
  * In-app crop screen with explicit Done and Cancel buttons.
- * Receives EXTRA_IMAGE_URI; returns EXTRA_RESULT_URI on Done.
+ * Receives EXTRA_IMAGE_URI; returns EXTRA_CROP_RECT on Done, the selection as fractions (0..1)
+ * of the image. Nothing is decoded or written here; the caller applies the crop when it renders.
  */
 public class CropActivity extends AppCompatActivity {
 
     public static final String EXTRA_IMAGE_URI = "image_uri";
-    public static final String EXTRA_RESULT_URI = "result_uri";
+    public static final String EXTRA_CROP_RECT = "crop_rect";
 
     private CropImageView cropImageView;
     private Uri inputUri;
@@ -65,29 +62,21 @@ public class CropActivity extends AppCompatActivity {
         return true;
     }
 
+    /** Return the crop as fractions of the image, so the editor can keep it as an edit step. */
     private void onCropDone() {
-        View doneBtn = findViewById(R.id.btnDone);
-        doneBtn.setEnabled(false);
-        Executors.newSingleThreadExecutor().execute(() -> {
-            Bitmap bitmap = cropImageView.getCroppedImage();
-            runOnUiThread(() -> {
-                doneBtn.setEnabled(true);
-                if (bitmap == null) {
-                    Toast.makeText(this, "Crop failed", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-                try {
-                    Uri savedUri = ImageHelper.saveBitmapToCacheUri(this, bitmap);
-                    bitmap.recycle();
-                    Intent data = new Intent();
-                    data.setData(savedUri);
-                    data.putExtra(EXTRA_RESULT_URI, savedUri);
-                    setResult(RESULT_OK, data);
-                    finish();
-                } catch (IOException e) {
-                    Toast.makeText(this, "Save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            });
-        });
+        Rect crop = cropImageView.getCropRect();
+        Rect whole = cropImageView.getWholeImageRect();
+        if (crop == null || whole == null || whole.isEmpty()) {
+            Toast.makeText(this, "Crop failed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        float w = whole.width();
+        float h = whole.height();
+        RectF rect = new RectF(crop.left / w, crop.top / h, crop.right / w, crop.bottom / h);
+        rect.intersect(0f, 0f, 1f, 1f);
+        Intent data = new Intent();
+        data.putExtra(EXTRA_CROP_RECT, rect);
+        setResult(RESULT_OK, data);
+        finish();
     }
 }
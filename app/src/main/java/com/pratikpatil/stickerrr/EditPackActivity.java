@@ -4,7 +4,6 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -13,16 +12,18 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pratikpatil.stickerrr.createpack.ContentsJsonWriter;
+import com.pratikpatil.stickerrr.createpack.PackStickersModel;
 import com.pratikpatil.stickerrr.createpack.PackStorage;
 import com.pratikpatil.stickerrr.stickerapi.ContentFileParser;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
 import com.pratikpatil.stickerrr.stickerapi.StickerContentProvider;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
-import com.pratikpatil.stickerrr.stickerapi.StickerPackLoader;
+import com.pratikpatil.stickerrr.stickerpacklist.ThumbnailCache;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -38,12 +39,15 @@ public class EditPackActivity extends AppCompatActivity
 
     private static final int MIN_STICKERS = 3;
     private static final int MAX_STICKERS = 30;
+    private static final int TRAY_THUMBNAIL_PX = 96;
     private static final Pattern STICKER_INDEX_PATTERN = Pattern.compile("sticker_(\\d+)\\.webp");
 
     private String packIdentifier;
     private String trayFileName;
     private Uri trayUri;
-    private final List<Sticker> stickers = new ArrayList<>();
+    private PackStickersModel model;
+    /** The model's list, so it survives recreation along with a running import. */
+    private List<Sticker> stickers;
     private PackStorage packStorage;
     private int pendingReplacePosition = -1;
     private EditText editPackName;
@@ -51,6 +55,7 @@ public class EditPackActivity extends AppCompatActivity
     private ImageView imgTrayPreview;
     private RecyclerView recyclerStickers;
     private EditStickerListAdapter stickerAdapter;
+    private StickerImportUi importUi;
 
     private final ActivityResultLauncher<Intent> pickTray = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
@@ -59,6 +64,7 @@ public class EditPackActivity extends AppCompatActivity
                 Uri uri = result.getData().getData();
                 if (uri != null) {
                     trayUri = uri;
+                    ThumbnailCache.getInstance(this).cancel(imgTrayPreview);
                     imgTrayPreview.setImageURI(uri);
                     try {
                         trayFileName = packStorage.saveTrayIcon(packIdentifier, uri);
@@ -72,9 +78,13 @@ public class EditPackActivity extends AppCompatActivity
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() != RESULT_OK || result.getData() == null) return;
-                Uri uri = result.getData().getData();
-                if (uri == null) return;
-                launchStickerEditor(uri);
+                List<Uri> uris = StickerImportUi.pickedUris(result.getData());
+                if (uris.isEmpty()) return;
+                if (uris.size() == 1 || pendingReplacePosition >= 0) {
+                    launchStickerEditor(uris.get(0));
+                } else {
+                    importUi.importStickers(uris);
+                }
             });
 
     private final ActivityResultLauncher<Intent> stickerEditor = registerForActivityResult(
@@ -115,6 +125,8 @@ public class EditPackActivity extends AppCompatActivity
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
         packStorage = new PackStorage(this);
+        model = new ViewModelProvider(this).get(PackStickersModel.class);
+        stickers = model.getStickers();
 
         editPackName = findViewById(R.id.editPackName);
         editPublisher = findViewById(R.id.editPublisher);
@@ -130,6 +142,7 @@ public class EditPackActivity extends AppCompatActivity
         stickerAdapter = new EditStickerListAdapter(stickers, this, this);
         recyclerStickers.setLayoutManager(new LinearLayoutManager(this));
         recyclerStickers.setAdapter(stickerAdapter);
+        importUi = new StickerImportUi(this, model, packStorage, stickerAdapter, MAX_STICKERS);
 
         btnPickTray.setOnClickListener(v -> {
             Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*");
@@ -138,11 +151,20 @@ public class EditPackActivity extends AppCompatActivity
 
         btnPickImage.setOnClickListener(v -> {
             pendingReplacePosition = -1;
-            Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*");
+            Intent i = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*")
+                    .putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
             pickImage.launch(Intent.createChooser(i, getString(R.string.pick_image)));
         });
 
         btnSave.setOnClickListener(v -> savePack());
+        model.attach(importUi);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running import carries on in the model; it is cancelled once this screen is finished.
+        if (importUi != null) model.detach(importUi);
     }
 
     @Override
@@ -169,21 +191,22 @@ public class EditPackActivity extends AppCompatActivity
             editPackName.setText(pack.name);
             editPublisher.setText(pack.publisher);
             trayFileName = pack.trayImageFile;
-            if (pack.getStickers() != null) {
-                stickers.clear();
-                stickers.addAll(pack.getStickers());
+            // Once recreated, the model's list also holds stickers added since and not yet saved.
+            if (model.getPackIdentifier() == null) {
+                List<Sticker> saved = pack.getStickers() != null ? pack.getStickers() : Collections.emptyList();
+                model.setPack(packIdentifier, saved, getNextStickerIndex(saved));
             }
-            Uri trayUri = StickerPackLoader.getStickerAssetUri(pack.identifier, pack.trayImageFile);
-            imgTrayPreview.setImageURI(trayUri);
+            ThumbnailCache.getInstance(this).load(imgTrayPreview, pack.identifier, pack.trayImageFile, TRAY_THUMBNAIL_PX);
         } catch (Exception e) {
             Toast.makeText(this, "Failed to load pack", Toast.LENGTH_SHORT).show();
             finish();
         }
     }
 
-    private int getNextStickerIndex() {
+    /** One past the highest index among the saved stickers; later indices are reserved through the model. */
+    private static int getNextStickerIndex(List<Sticker> saved) {
         int max = 0;
-        for (Sticker s : stickers) {
+        for (Sticker s : saved) {
             Matcher m = STICKER_INDEX_PATTERN.matcher(s.imageFileName);
             if (m.find()) {
                 int n = Integer.parseInt(m.group(1));
@@ -194,12 +217,9 @@ public class EditPackActivity extends AppCompatActivity
     }
 
     private void addStickerFromUri(Uri uri) {
-        if (stickers.size() >= MAX_STICKERS) {
-            Toast.makeText(this, "Max " + MAX_STICKERS + " stickers", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        if (!importUi.hasRoom()) return;
         try {
-            int index = getNextStickerIndex();
+            int index = model.reserveStickerIndices(1);
             List<String> emojis = Collections.singletonList("😀");
             Sticker s = packStorage.addStickerImageToPack(packIdentifier, index, uri, emojis, "");
             stickers.add(s);
@@ -1,8 +1,13 @@
 package com.pratikpatil.stickerrr;
 
 import android.content.ActivityNotFoundException;
+import android.content.Context;
 import android.content.Intent;
+import android.database.ContentObserver;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.Toast;
 
@@ -16,18 +21,38 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.pratikpatil.stickerrr.BuildConfig;
 import com.pratikpatil.stickerrr.createpack.PackStorage;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.pratikpatil.stickerrr.stickerapi.StickerContentProvider;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
 import com.pratikpatil.stickerrr.stickerapi.StickerPackLoader;
 import com.pratikpatil.stickerrr.stickerpacklist.PackListAdapter;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity implements PackListAdapter.AddToWhatsAppListener {
 
+    /** Change notifications arriving within this window are folded into one reload. */
+    private static final long RELOAD_COALESCE_MS = 300;
+
     private RecyclerView recyclerPacks;
     private View emptyText;
     private PackListAdapter adapter;
 
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable reloadRunnable = this::loadPacks;
+    private Future<?> pendingLoad;
+    private int loadGeneration;
+
+    private final ContentObserver packsObserver = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            scheduleReload();
+        }
+    };
+
     private final ActivityResultLauncher<Intent> addToWhatsAppLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
@@ -44,8 +69,6 @@ public class MainActivity extends AppCompatActivity implements PackListAdapter.A
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        SamplePackHelper.ensureSamplePackExists(this);
-
         setSupportActionBar(findViewById(R.id.toolbar));
 
         recyclerPacks = findViewById(R.id.recyclerPacks);
@@ -53,22 +76,36 @@ public class MainActivity extends AppCompatActivity implements PackListAdapter.A
         com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton fabCreate = findViewById(R.id.fabCreate);
 
         recyclerPacks.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new PackListAdapter(getContentResolver(), this);
+        adapter = new PackListAdapter(this);
         recyclerPacks.setAdapter(adapter);
 
         fabCreate.setOnClickListener(v -> {
             startActivity(new Intent(this, CreatePackActivity.class));
         });
-
-        loadPacks();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
+        getContentResolver().registerContentObserver(StickerContentProvider.AUTHORITY_URI, true, packsObserver);
         loadPacks();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        getContentResolver().unregisterContentObserver(packsObserver);
+        mainHandler.removeCallbacks(reloadRunnable);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loadGeneration++;
+        if (pendingLoad != null) pendingLoad.cancel(true);
+        loadExecutor.shutdownNow();
+    }
+
     @Override
     public void onAddToWhatsApp(@NonNull StickerPack pack) {
         if (!isWhatsAppInstalled()) {
@@ -127,15 +164,45 @@ public class MainActivity extends AppCompatActivity implements PackListAdapter.A
         return false;
     }
 
+    private void scheduleReload() {
+        mainHandler.removeCallbacks(reloadRunnable);
+        mainHandler.postDelayed(reloadRunnable, RELOAD_COALESCE_MS);
+    }
+
+    /**
+     * Load packs on a background thread and publish on the main thread.
+     * A newer call cancels the previous load; only the latest result is shown.
+     */
     private void loadPacks() {
-        try {
-            List<StickerPack> packs = StickerPackLoader.fetchStickerPacksWithoutValidation(this);
-            adapter.setPacks(packs);
-            emptyText.setVisibility(packs.isEmpty() ? View.VISIBLE : View.GONE);
-        } catch (Exception e) {
+        mainHandler.removeCallbacks(reloadRunnable);
+        if (pendingLoad != null) pendingLoad.cancel(true);
+        final int generation = ++loadGeneration;
+        final Context appContext = getApplicationContext();
+        pendingLoad = loadExecutor.submit(() -> {
+            List<StickerPack> packs;
+            try {
+                SamplePackHelper.ensureSamplePackExists(appContext);
+                packs = StickerPackLoader.fetchStickerPacksWithoutValidation(appContext);
+            } catch (Exception e) {
+                packs = null;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            final List<StickerPack> result = packs;
+            mainHandler.post(() -> {
+                if (generation != loadGeneration || isDestroyed()) return;
+                showPacks(result);
+            });
+        });
+    }
+
+    private void showPacks(List<StickerPack> packs) {
+        if (packs == null) {
             adapter.setPacks(List.of());
             emptyText.setVisibility(View.VISIBLE);
             Toast.makeText(this, "Could not load packs", Toast.LENGTH_SHORT).show();
+            return;
         }
+        adapter.setPacks(packs);
+        emptyText.setVisibility(packs.isEmpty() ? View.VISIBLE : View.GONE);
     }
 }
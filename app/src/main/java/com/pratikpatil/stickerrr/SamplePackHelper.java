@@ -2,12 +2,11 @@ package com.pratikpatil.stickerrr;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
 
 import androidx.annotation.NonNull;
 
+import com.pratikpatil.stickerrr.createpack.BitmapPool;
 import com.pratikpatil.stickerrr.createpack.ContentsJsonWriter;
 import com.pratikpatil.stickerrr.createpack.PackStorage;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
@@ -74,7 +73,7 @@ public final class SamplePackHelper {
         try (FileOutputStream fos = new FileOutputStream(out)) {
             b.compress(Bitmap.CompressFormat.PNG, 90, fos);
         }
-        b.recycle();
+        BitmapPool.getInstance().put(b);
     }
 
     private static void createStickerImages(File packDir, int[] colors) throws IOException {
@@ -84,16 +83,13 @@ public final class SamplePackHelper {
             try (FileOutputStream fos = new FileOutputStream(out)) {
                 b.compress(Bitmap.CompressFormat.WEBP, 80, fos);
             }
-            b.recycle();
+            BitmapPool.getInstance().put(b);
         }
     }
 
     private static Bitmap createColorBitmap(int size, int color) {
-        Bitmap b = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-        Canvas c = new Canvas(b);
-        Paint p = new Paint(Paint.ANTI_ALIAS_FLAG);
-        p.setColor(color);
-        c.drawRect(0, 0, size, size, p);
+        Bitmap b = BitmapPool.getInstance().getDirty(size, size, Bitmap.Config.ARGB_8888);
+        b.eraseColor(color);
         return b;
     }
 
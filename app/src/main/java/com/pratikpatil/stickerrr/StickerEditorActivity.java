@@ -1,10 +1,15 @@
 package com.pratikpatil.stickerrr;
 
+import android.content.ContentResolver;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -17,36 +22,70 @@ import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.android.material.materialswitch.MaterialSwitch;
+import com.google.android.material.progressindicator.CircularProgressIndicator;
+import com.pratikpatil.stickerrr.createpack.BitmapPool;
+import com.pratikpatil.stickerrr.createpack.EditHistory;
+import com.pratikpatil.stickerrr.createpack.EditPipeline;
 import com.pratikpatil.stickerrr.createpack.ImageHelper;
+import com.pratikpatil.stickerrr.createpack.TextLayer;
 import com.pratikpatil.stickerrr.view.ImageWithTextView;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Edit a sticker image with options: Crop, Add text, Remove background.
  * Receives EXTRA_IMAGE_URI; returns EXTRA_RESULT_URI on Done.
+ * Edits are kept as an {@link EditPipeline} over the decoded source and only rendered: at screen
+ * size for the preview, and once at 512x512 on Done. Undo and redo step through an
+ * {@link EditHistory}.
  */
 public class StickerEditorActivity extends AppCompatActivity {
 
     public static final String EXTRA_IMAGE_URI = "image_uri";
     public static final String EXTRA_RESULT_URI = "result_uri";
 
+    /** Longest side the source is decoded at; enough to crop well into it and still export 512x512. */
+    private static final int MAX_SOURCE_PX = 2048;
+
     private ImageView imgPreview;
-    private Uri currentUri;
+    private CircularProgressIndicator progressEdit;
+    private Uri inputUri;
+    /** Decoded once and never modified; every render starts from it. */
+    private Bitmap sourceBitmap;
+    private final EditHistory history = new EditHistory();
+    /** Latest preview render of the history's pipeline, shown in imgPreview and used by the crop and text screens. */
+    private Bitmap previewBitmap;
+    private Uri cropInputUri;
+
+    /** Decodes, renders and encodes off the UI thread, one task at a time. */
+    private final ExecutorService editExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<?> pendingPreview;
+    private Future<?> pendingTask;
+    /** Crop or text action tapped while a preview was rendering; run once it is shown. */
+    private Runnable afterPreview;
+    private int previewGeneration;
+    private int taskGeneration;
 
     private final ActivityResultLauncher<Intent> cropActivity = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
+                deleteCacheFile(cropInputUri);
+                cropInputUri = null;
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                    Uri uri = result.getData().getData();
-                    if (uri == null) uri = result.getData().getParcelableExtra(CropActivity.EXTRA_RESULT_URI);
-                    if (uri != null) {
-                        currentUri = uri;
-                        loadPreview();
-                    }
+                    RectF rect = result.getData().getParcelableExtra(CropActivity.EXTRA_CROP_RECT);
+                    if (rect != null) applyOp(new EditPipeline.Crop(rect));
                 }
             });
 
@@ -61,19 +100,39 @@ public class StickerEditorActivity extends AppCompatActivity {
         }
 
         imgPreview = findViewById(R.id.imgPreview);
-        Uri inputUri = getIntent().getParcelableExtra(EXTRA_IMAGE_URI);
+        progressEdit = findViewById(R.id.progressEdit);
+        inputUri = getIntent().getParcelableExtra(EXTRA_IMAGE_URI);
         if (inputUri == null) {
             Toast.makeText(this, "No image", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
-        currentUri = inputUri;
-        loadPreview();
+        loadSource();
 
         findViewById(R.id.btnCrop).setOnClickListener(v -> launchCrop());
         findViewById(R.id.btnAddText).setOnClickListener(v -> showAddTextDialog());
-        findViewById(R.id.btnRemoveBg).setOnClickListener(v -> applyRemoveBackground());
+        findViewById(R.id.btnRemoveBg).setOnClickListener(v -> showRemoveBackgroundDialog());
         findViewById(R.id.btnDone).setOnClickListener(v -> done());
+        findViewById(R.id.btnUndo).setOnClickListener(v -> {
+            history.undo();
+            renderPreview();
+        });
+        findViewById(R.id.btnRedo).setOnClickListener(v -> {
+            history.redo();
+            renderPreview();
+        });
+        updateUndoButtons();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        previewGeneration++;
+        taskGeneration++;
+        if (pendingPreview != null) pendingPreview.cancel(true);
+        if (pendingTask != null) pendingTask.cancel(true);
+        editExecutor.shutdownNow();
+        deleteCacheFile(cropInputUri);
     }
 
     @Override
@@ -83,17 +142,212 @@ public class StickerEditorActivity extends AppCompatActivity {
         return true;
     }
 
-    private void loadPreview() {
-        imgPreview.setImageURI(currentUri);
+    /** Decode the source image once in the background, then render the first preview. */
+    private void loadSource() {
+        final Uri uri = inputUri;
+        final ContentResolver resolver = getContentResolver();
+        setBusy(true);
+        runTask(() -> {
+            Bitmap bitmap;
+            try {
+                bitmap = ImageHelper.decodeOriented(resolver, uri, MAX_SOURCE_PX);
+            } catch (Exception | OutOfMemoryError e) {
+                bitmap = null;
+            }
+            final Bitmap result = bitmap;
+            return () -> {
+                setBusy(false);
+                if (result == null) {
+                    Toast.makeText(this, "Could not load image", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                sourceBitmap = result;
+                renderPreview();
+            };
+        });
+    }
+
+    /** Append an edit step and re-render the preview from the source. */
+    private void applyOp(@NonNull EditPipeline.Op op) {
+        history.push(op);
+        renderPreview();
+    }
+
+    /**
+     * Render the current pipeline at about the preview's size in the background. A newer render supersedes
+     * an older one that has not finished; the preview keeps its old image until then. A failed render
+     * keeps the old image too, and drops any action waiting for the preview.
+     */
+    private void renderPreview() {
+        if (sourceBitmap == null) return;
+        final Bitmap source = sourceBitmap;
+        final EditPipeline snapshot = history.current();
+        updateUndoButtons();
+        final int generation = ++previewGeneration;
+        if (pendingPreview != null) pendingPreview.cancel(true);
+        int targetPx = Math.max(imgPreview.getWidth(), getResources().getDisplayMetrics().widthPixels);
+        pendingPreview = editExecutor.submit(() -> {
+            Bitmap result;
+            try {
+                result = snapshot.renderPreview(source, targetPx);
+            } catch (Throwable t) {
+                mainHandler.post(() -> {
+                    if (generation != previewGeneration || isDestroyed()) return;
+                    pendingPreview = null;
+                    afterPreview = null;
+                    Toast.makeText(this, "Could not render preview", Toast.LENGTH_SHORT).show();
+                });
+                return;
+            }
+            mainHandler.post(() -> {
+                if (generation != previewGeneration || isDestroyed()) {
+                    BitmapPool.getInstance().put(result);
+                    return;
+                }
+                pendingPreview = null;
+                previewBitmap = result;
+                imgPreview.setImageBitmap(result);
+                Runnable action = afterPreview;
+                afterPreview = null;
+                if (action != null) action.run();
+            });
+        });
+    }
+
+    /** Background work that returns the main-thread step to run with its result. */
+    private interface Task {
+        @NonNull
+        Result run();
+    }
+
+    private interface Result {
+        /** Main-thread step, run when the task is still current. */
+        void deliver();
+
+        /** Release what the task produced when its result is dropped instead. */
+        default void discard() {}
+    }
+
+    /** A result that owns a cache file: deleted if the result is dropped. */
+    @NonNull
+    private static Result ownedFile(@Nullable Uri file, @NonNull Runnable deliver) {
+        return new Result() {
+            @Override
+            public void deliver() {
+                deliver.run();
+            }
+
+            @Override
+            public void discard() {
+                deleteCacheFile(file);
+            }
+        };
+    }
+
+    /**
+     * Run task on the edit thread and post its result step to the main thread, unless a newer
+     * task superseded it or the screen was destroyed meanwhile; then the result is discarded.
+     * If the task throws, the busy state is cleared and an error is shown.
+     */
+    private void runTask(@NonNull Task task) {
+        final int generation = ++taskGeneration;
+        if (pendingTask != null) pendingTask.cancel(true);
+        pendingTask = editExecutor.submit(() -> {
+            Result result;
+            try {
+                result = task.run();
+            } catch (Throwable t) {
+                mainHandler.post(() -> {
+                    if (generation != taskGeneration || isDestroyed()) return;
+                    pendingTask = null;
+                    setBusy(false);
+                    Toast.makeText(this, "Edit failed", Toast.LENGTH_SHORT).show();
+                });
+                return;
+            }
+            mainHandler.post(() -> {
+                if (generation != taskGeneration || isDestroyed()) {
+                    result.discard();
+                    return;
+                }
+                pendingTask = null;
+                result.deliver();
+            });
+        });
+    }
+
+    private static void deleteCacheFile(@Nullable Uri uri) {
+        if (uri != null && "file".equals(uri.getScheme()) && uri.getPath() != null) {
+            new File(uri.getPath()).delete();
+        }
+    }
+
+    private void setBusy(boolean busy) {
+        progressEdit.setVisibility(busy ? View.VISIBLE : View.GONE);
+        findViewById(R.id.btnCrop).setEnabled(!busy);
+        findViewById(R.id.btnAddText).setEnabled(!busy);
+        findViewById(R.id.btnRemoveBg).setEnabled(!busy);
+        findViewById(R.id.btnDone).setEnabled(!busy);
+        updateUndoButtons();
+    }
+
+    private void updateUndoButtons() {
+        boolean busy = progressEdit.getVisibility() == View.VISIBLE;
+        findViewById(R.id.btnUndo).setEnabled(!busy && history.canUndo());
+        findViewById(R.id.btnRedo).setEnabled(!busy && history.canRedo());
+    }
+
+    /**
+     * Crop and text are relative to the canvas shown, so they need the preview to match the pipeline.
+     * While a render is in flight the action is queued and runs when it is shown.
+     */
+    private boolean previewReady(@NonNull Runnable action) {
+        if (pendingPreview != null) {
+            afterPreview = action;
+            return false;
+        }
+        if (previewBitmap == null) {
+            Toast.makeText(this, "Preview not ready", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        return true;
     }
 
+    /** The crop screen gets the current preview; its result is a crop rect relative to that canvas. */
     private void launchCrop() {
-        Intent i = new Intent(this, CropActivity.class);
-        i.putExtra(CropActivity.EXTRA_IMAGE_URI, currentUri);
-        cropActivity.launch(i);
+        if (!previewReady(this::launchCrop)) return;
+        final Bitmap canvas = previewBitmap;
+        final Context appContext = getApplicationContext();
+        setBusy(true);
+        runTask(() -> {
+            Uri uri;
+            try {
+                uri = ImageHelper.saveBitmapToCacheUri(appContext, canvas);
+            } catch (IOException e) {
+                uri = null;
+            }
+            final Uri saved = uri;
+            return ownedFile(saved, () -> {
+                setBusy(false);
+                if (saved == null) {
+                    Toast.makeText(this, "Could not prepare crop", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                cropInputUri = saved;
+                Intent i = new Intent(this, CropActivity.class);
+                i.putExtra(CropActivity.EXTRA_IMAGE_URI, saved);
+                cropActivity.launch(i);
+            });
+        });
     }
 
     private void showAddTextDialog() {
+        if (!previewReady(this::showAddTextDialog)) return;
+        promptForText(text -> showAddTextOverlay(text, previewBitmap));
+    }
+
+    private void promptForText(TextEnteredListener listener) {
         EditText editText = new EditText(this);
         editText.setHint(getString(R.string.text_hint));
         editText.setPadding(48, 32, 48, 32);
@@ -105,112 +359,107 @@ public class StickerEditorActivity extends AppCompatActivity {
                 .setPositiveButton(R.string.add, (dialog, which) -> {
                     String text = editText.getText() != null ? editText.getText().toString().trim() : "";
                     if (!TextUtils.isEmpty(text)) {
-                        showAddTextOverlay(text);
+                        listener.onTextEntered(text);
                     }
                 })
                 .setNegativeButton(R.string.cancel, null)
                 .show();
     }
 
-    private void showAddTextOverlay(String text) {
-        try {
-            Bitmap bitmap = ImageHelper.loadBitmap(this, currentUri);
-            if (bitmap == null) {
-                Toast.makeText(this, "Could not load image", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            View root = LayoutInflater.from(this).inflate(R.layout.dialog_add_text, null);
-            ImageWithTextView imageWithText = root.findViewById(R.id.imageWithText);
-            SeekBar seekTextSize = root.findViewById(R.id.seekTextSize);
-            SeekBar seekRotation = root.findViewById(R.id.seekRotation);
-            LinearLayout colorSwatches = root.findViewById(R.id.colorSwatches);
-
-            imageWithText.setBitmap(bitmap);
-            imageWithText.setText(text);
-            int[] colors = {
-                    Color.WHITE, Color.BLACK, Color.RED, Color.BLUE, Color.GREEN,
-                    Color.YELLOW, Color.MAGENTA, Color.CYAN, Color.rgb(255, 165, 0), // Orange
-                    Color.rgb(128, 0, 128), // Purple
-                    Color.rgb(255, 192, 203), // Pink
-                    Color.rgb(165, 42, 42)  // Brown
-            };
-            int selectedColor = Color.WHITE;
-            imageWithText.setTextColor(selectedColor);
-            final int[] finalSelectedColor = {selectedColor};
-            setupColorSwatches(colorSwatches, colors, selectedColor, (color) -> {
-                finalSelectedColor[0] = color;
-                imageWithText.setTextColor(color);
-            });
-            float minSize = 20f;
-            float maxSize = Math.min(bitmap.getWidth(), bitmap.getHeight()) * 0.35f;
-            float initialSize = Math.min(bitmap.getWidth(), bitmap.getHeight()) * 0.15f;
-            imageWithText.setTextSizePx(initialSize);
-            int progress = maxSize > minSize ? (int) ((initialSize - minSize) / (maxSize - minSize) * 100f) : 50;
-            seekTextSize.setProgress(Math.max(0, Math.min(100, progress)));
-            seekTextSize.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
-                @Override
-                public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                    if (fromUser) {
-                        float size = minSize + (maxSize - minSize) * progress / 100f;
-                        imageWithText.setTextSizePx(size);
-                    }
+    private interface TextEnteredListener {
+        void onTextEntered(String text);
+    }
+
+    private void showAddTextOverlay(String text, Bitmap bitmap) {
+        View root = LayoutInflater.from(this).inflate(R.layout.dialog_add_text, null);
+        ImageWithTextView imageWithText = root.findViewById(R.id.imageWithText);
+        SeekBar seekTextSize = root.findViewById(R.id.seekTextSize);
+        SeekBar seekRotation = root.findViewById(R.id.seekRotation);
+        LinearLayout colorSwatches = root.findViewById(R.id.colorSwatches);
+        MaterialSwitch switchOutline = root.findViewById(R.id.switchOutline);
+
+        imageWithText.setBitmap(bitmap);
+        int[] colors = {
+                Color.WHITE, Color.BLACK, Color.RED, Color.BLUE, Color.GREEN,
+                Color.YELLOW, Color.MAGENTA, Color.CYAN, Color.rgb(255, 165, 0), // Orange
+                Color.rgb(128, 0, 128), // Purple
+                Color.rgb(255, 192, 203), // Pink
+                Color.rgb(165, 42, 42)  // Brown
+        };
+        int selectedColor = Color.WHITE;
+        imageWithText.setTextColor(selectedColor);
+        final int[] finalSelectedColor = {selectedColor};
+        setupColorSwatches(colorSwatches, colors, selectedColor, (color) -> {
+            finalSelectedColor[0] = color;
+            imageWithText.setTextColor(color);
+        });
+        float minSize = 20f;
+        float maxSize = Math.min(bitmap.getWidth(), bitmap.getHeight()) * 0.35f;
+        float initialSize = Math.min(bitmap.getWidth(), bitmap.getHeight()) * 0.15f;
+        imageWithText.setTextSizePx(initialSize);
+        imageWithText.addText(text);
+        int progress = maxSize > minSize ? (int) ((initialSize - minSize) / (maxSize - minSize) * 100f) : 50;
+        seekTextSize.setProgress(Math.max(0, Math.min(100, progress)));
+        imageWithText.setOnSelectionChangedListener(layer -> {
+            if (layer == null) return;
+            int sizeProgress = maxSize > minSize ? (int) ((layer.getSize() - minSize) / (maxSize - minSize) * 100f) : 50;
+            seekTextSize.setProgress(Math.max(0, Math.min(100, sizeProgress)));
+            seekRotation.setProgress(Math.round(layer.getRotationDegrees()));
+            switchOutline.setChecked(layer.getStrokeWidth() > 0f);
+            finalSelectedColor[0] = layer.getColor();
+        });
+        switchOutline.setOnCheckedChangeListener((button, checked) -> imageWithText.setTextStroke(checked));
+        root.findViewById(R.id.btnAddLayer).setOnClickListener(v -> promptForText(imageWithText::addText));
+        seekTextSize.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    float size = minSize + (maxSize - minSize) * progress / 100f;
+                    imageWithText.setTextSizePx(size);
                 }
-                @Override
-                public void onStartTrackingTouch(SeekBar seekBar) {}
-                @Override
-                public void onStopTrackingTouch(SeekBar seekBar) {}
-            });
-            seekRotation.setProgress(0);
-            seekRotation.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
-                @Override
-                public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                    if (fromUser) {
-                        imageWithText.setTextRotation(progress);
-                    }
+            }
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
+        seekRotation.setProgress(0);
+        seekRotation.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    imageWithText.setTextRotation(progress);
                 }
-                @Override
-                public void onStartTrackingTouch(SeekBar seekBar) {}
-                @Override
-                public void onStopTrackingTouch(SeekBar seekBar) {}
-            });
+            }
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
 
-            AlertDialog overlay = new AlertDialog.Builder(this)
-                    .setView(root)
-                    .setCancelable(true)
-                    .create();
-            root.findViewById(R.id.btnCancelText).setOnClickListener(v -> overlay.dismiss());
-            root.findViewById(R.id.btnCustomColor).setOnClickListener(v -> {
-                showColorPickerDialog(finalSelectedColor[0], (pickedColor) -> {
-                    finalSelectedColor[0] = pickedColor;
-                    imageWithText.setTextColor(pickedColor);
-                });
-            });
-            root.findViewById(R.id.btnApplyText).setOnClickListener(v -> {
-                float textX = imageWithText.getTextX();
-                float textY = imageWithText.getTextY();
-                float textSizePx = imageWithText.getTextSizePx();
-                float rotation = imageWithText.getTextRotation();
-                int color = finalSelectedColor[0];
-                overlay.dismiss();
-                applyAddTextAt(bitmap, text, textX, textY, textSizePx, rotation, color);
+        AlertDialog overlay = new AlertDialog.Builder(this)
+                .setView(root)
+                .setCancelable(true)
+                .create();
+        root.findViewById(R.id.btnCancelText).setOnClickListener(v -> overlay.dismiss());
+        root.findViewById(R.id.btnCustomColor).setOnClickListener(v -> {
+            showColorPickerDialog(finalSelectedColor[0], (pickedColor) -> {
+                finalSelectedColor[0] = pickedColor;
+                imageWithText.setTextColor(pickedColor);
             });
-            overlay.show();
-        } catch (IOException e) {
-            Toast.makeText(this, "Failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+        });
+        root.findViewById(R.id.btnApplyText).setOnClickListener(v -> {
+            List<TextLayer> layers = imageWithText.getLayers();
+            overlay.dismiss();
+            applyTextLayers(bitmap, layers);
+        });
+        overlay.show();
     }
 
-    private void applyAddTextAt(Bitmap bitmap, String text, float textX, float textY, float textSizePx, float rotationDegrees, int textColor) {
-        try {
-            Bitmap withText = ImageHelper.drawTextOnBitmapAt(bitmap, text, textColor, textSizePx, textX, textY, rotationDegrees);
-            if (bitmap != withText) bitmap.recycle();
-            Uri newUri = ImageHelper.saveBitmapToCacheUri(this, withText);
-            withText.recycle();
-            currentUri = newUri;
-            loadPreview();
-        } catch (IOException e) {
-            Toast.makeText(this, "Failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+    /** All captions become one step; their coordinates are in the overlay bitmap's pixels. */
+    private void applyTextLayers(Bitmap bitmap, List<TextLayer> layers) {
+        if (layers.isEmpty()) return;
+        applyOp(new EditPipeline.Text(layers, bitmap.getWidth()));
     }
 
     private void setupColorSwatches(LinearLayout container, int[] colors, int selectedColor, ColorSelectedListener listener) {
@@ -280,29 +529,74 @@ public class StickerEditorActivity extends AppCompatActivity {
         void onColorSelected(int color);
     }
 
+    private void showRemoveBackgroundDialog() {
+        String[] modes = {getString(R.string.remove_bg_connected), getString(R.string.remove_bg_connected_soft),
+                getString(R.string.remove_bg_all_white)};
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.remove_bg)
+                .setItems(modes, (dialog, which) -> {
+                    if (which == 2) {
+                        applyRemoveBackground();
+                    } else {
+                        applyRemoveConnectedBackground(which == 1);
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
     private void applyRemoveBackground() {
-        try {
-            Bitmap bitmap = ImageHelper.loadBitmap(this, currentUri);
-            if (bitmap == null) {
-                Toast.makeText(this, "Could not load image", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            Bitmap noBg = ImageHelper.removeBackground(bitmap);
-            if (bitmap != noBg) bitmap.recycle();
-            Uri newUri = ImageHelper.saveBitmapToCacheUri(this, noBg);
-            noBg.recycle();
-            currentUri = newUri;
-            loadPreview();
-            Toast.makeText(this, "Background removed (white areas)", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            Toast.makeText(this, "Failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+        applyOp(new EditPipeline.Mask(EditPipeline.Mask.ALL_WHITE));
+    }
+
+    /**
+     * Only white connected to the image border, so white inside the subject is kept.
+     * With softEdges the cut is feathered to hide the jagged white fringe.
+     */
+    private void applyRemoveConnectedBackground(boolean softEdges) {
+        applyOp(new EditPipeline.Mask(softEdges ? EditPipeline.Mask.CONNECTED_SOFT : EditPipeline.Mask.CONNECTED));
     }
 
+    /** Render the pipeline once at 512x512 and return it; with no edits the input is returned as is. */
     private void done() {
+        afterPreview = null;
+        final EditPipeline snapshot = history.current();
+        if (snapshot.isEmpty() || sourceBitmap == null) {
+            finishWithResult(inputUri);
+            return;
+        }
+        final Bitmap source = sourceBitmap;
+        final Context appContext = getApplicationContext();
+        setBusy(true);
+        runTask(() -> {
+            Bitmap sticker = snapshot.renderSticker(source, ImageHelper.STICKER_SIZE);
+            Uri uri;
+            String error = null;
+            try {
+                uri = ImageHelper.saveBitmapToCacheUri(appContext, sticker);
+            } catch (IOException e) {
+                uri = null;
+                error = e.getMessage();
+            } finally {
+                BitmapPool.getInstance().put(sticker);
+            }
+            final Uri saved = uri;
+            final String message = error;
+            return ownedFile(saved, () -> {
+                setBusy(false);
+                if (saved == null) {
+                    Toast.makeText(this, "Failed: " + message, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                finishWithResult(saved);
+            });
+        });
+    }
+
+    private void finishWithResult(Uri uri) {
         Intent data = new Intent();
-        data.setData(currentUri);
-        data.putExtra(EXTRA_RESULT_URI, currentUri);
+        data.setData(uri);
+        data.putExtra(EXTRA_RESULT_URI, uri);
         setResult(RESULT_OK, data);
         finish();
     }
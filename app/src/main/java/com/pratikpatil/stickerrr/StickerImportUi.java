@@ -0,0 +1,119 @@
+package com.pratikpatil.stickerrr;
+
+import android.app.Activity;
+import android.content.ClipData;
+import android.content.Intent;
+import android.net.Uri;
+import android.view.View;
+import android.widget.Button;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+import com.pratikpatil.stickerrr.createpack.PackStickersModel;
+import com.pratikpatil.stickerrr.createpack.PackStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Multi-image import shared by the create and edit pack screens: picks apart the picker result,
+ * caps the batch to the room left in the pack, and shows the import's progress. Both layouts use
+ * btnPickImage, btnSave and progressImport.
+ */
+final class StickerImportUi implements PackStickersModel.Host {
+
+    private final Activity activity;
+    private final PackStickersModel model;
+    private final PackStorage packStorage;
+    private final RecyclerView.Adapter<?> adapter;
+    private final int maxStickers;
+    private final Button btnPickImage;
+    private final Button btnSave;
+    private final LinearProgressIndicator progressImport;
+
+    StickerImportUi(@NonNull Activity activity, @NonNull PackStickersModel model, @NonNull PackStorage packStorage,
+                    @NonNull RecyclerView.Adapter<?> adapter, int maxStickers) {
+        this.activity = activity;
+        this.model = model;
+        this.packStorage = packStorage;
+        this.adapter = adapter;
+        this.maxStickers = maxStickers;
+        btnPickImage = activity.findViewById(R.id.btnPickImage);
+        btnSave = activity.findViewById(R.id.btnSave);
+        progressImport = activity.findViewById(R.id.progressImport);
+    }
+
+    /** Single image from getData(), or several from getClipData() when multi-select was used. */
+    @NonNull
+    static List<Uri> pickedUris(@NonNull Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clip = data.getClipData();
+        if (clip != null) {
+            for (int i = 0; i < clip.getItemCount(); i++) {
+                Uri uri = clip.getItemAt(i).getUri();
+                if (uri != null) uris.add(uri);
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
+    /** False, after telling the user, when the pack is already full. */
+    boolean hasRoom() {
+        if (model.getStickers().size() < maxStickers) return true;
+        Toast.makeText(activity, activity.getString(R.string.max_stickers, maxStickers), Toast.LENGTH_SHORT).show();
+        return false;
+    }
+
+    /** Add several picked images without the editor, in the background, keeping the picked order. */
+    void importStickers(@NonNull List<Uri> uris) {
+        if (!hasRoom()) return;
+        int room = maxStickers - model.getStickers().size();
+        if (uris.size() > room) {
+            Toast.makeText(activity, activity.getString(R.string.import_only_first, room, maxStickers),
+                    Toast.LENGTH_SHORT).show();
+            uris = uris.subList(0, room);
+        }
+        model.importStickers(packStorage, uris, Collections.singletonList("😀"));
+    }
+
+    @Override
+    public void onImportStarted(int completed, int total) {
+        setImporting(true, total);
+        progressImport.setProgressCompat(completed, false);
+    }
+
+    @Override
+    public void onImportProgress(int completed, int total) {
+        progressImport.setProgressCompat(completed, true);
+    }
+
+    @Override
+    public void onStickerAdded(int position) {
+        adapter.notifyItemInserted(position);
+    }
+
+    @Override
+    public void onImportFinished(int failed) {
+        setImporting(false, 0);
+        if (failed > 0) {
+            Toast.makeText(activity, activity.getResources().getQuantityString(R.plurals.import_failed, failed, failed),
+                    Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void setImporting(boolean importing, int total) {
+        btnPickImage.setEnabled(!importing);
+        btnSave.setEnabled(!importing);
+        if (importing) {
+            progressImport.setMax(total);
+            progressImport.setProgressCompat(0, false);
+        }
+        progressImport.setVisibility(importing ? View.VISIBLE : View.GONE);
+    }
+}
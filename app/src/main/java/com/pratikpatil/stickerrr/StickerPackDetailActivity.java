@@ -18,14 +18,16 @@ import com.pratikpatil.stickerrr.createpack.PackStorage;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
 import com.pratikpatil.stickerrr.stickerapi.StickerPackLoader;
 import com.pratikpatil.stickerrr.stickerpacklist.StickerPreviewAdapter;
+import com.pratikpatil.stickerrr.stickerpacklist.ThumbnailCache;
 
-import java.io.InputStream;
 import java.util.List;
 
 public class StickerPackDetailActivity extends AppCompatActivity {
 
     public static final String EXTRA_PACK_ID = "pack_id";
 
+    private static final int TRAY_THUMBNAIL_PX = 96;
+
     private StickerPack pack;
     private ImageView imgTray;
     private TextView txtPackName;
@@ -65,8 +67,7 @@ public class StickerPackDetailActivity extends AppCompatActivity {
         recyclerStickers.setLayoutManager(new GridLayoutManager(this, 4));
         recyclerStickers.setAdapter(new StickerPreviewAdapter(
                 pack.identifier,
-                pack.getStickers(),
-                getContentResolver()));
+                pack.getStickers()));
 
         btnAddToWhatsApp.setOnClickListener(v -> launchAddToWhatsApp());
         btnEdit.setOnClickListener(v -> {
@@ -95,12 +96,7 @@ public class StickerPackDetailActivity extends AppCompatActivity {
         if (pack == null) return;
         txtPackName.setText(pack.name);
         txtPublisher.setText(pack.publisher);
-        try (InputStream is = getContentResolver().openInputStream(
-                StickerPackLoader.getStickerAssetUri(pack.identifier, pack.trayImageFile))) {
-            if (is != null) {
-                imgTray.setImageBitmap(android.graphics.BitmapFactory.decodeStream(is));
-            }
-        } catch (Exception ignored) { }
+        ThumbnailCache.getInstance(this).load(imgTray, pack.identifier, pack.trayImageFile, TRAY_THUMBNAIL_PX);
     }
 
     private void launchAddToWhatsApp() {
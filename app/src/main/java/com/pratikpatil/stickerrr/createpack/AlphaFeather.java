@@ -0,0 +1,52 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Separable box blur of an 8-bit alpha plane with running sums, O(pixels) for any radius.
+ * Used to soften the hard edge left by background removal.
+ */
+final class AlphaFeather {
+
+    private AlphaFeather() {
+    }
+
+    /**
+     * Blur alpha (w*h, unsigned bytes) in place with a (2*radius+1)^2 box, clamping at the image
+     * edges. tmp must hold at least w*h bytes and receives the horizontal pass.
+     */
+    static void boxBlur(@NonNull byte[] alpha, @NonNull byte[] tmp, int w, int h, int radius) {
+        int window = 2 * radius + 1;
+        // Horizontal pass: alpha -> tmp, one running sum per row.
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            int sum = 0;
+            for (int k = -radius; k <= radius; k++) {
+                sum += alpha[row + clamp(k, w)] & 0xff;
+            }
+            for (int x = 0; x < w; x++) {
+                tmp[row + x] = (byte) (sum / window);
+                sum += (alpha[row + clamp(x + radius + 1, w)] & 0xff) - (alpha[row + clamp(x - radius, w)] & 0xff);
+            }
+        }
+        // Vertical pass: tmp -> alpha, one running sum per column, walked row by row for locality.
+        int[] colSum = new int[w];
+        for (int k = -radius; k <= radius; k++) {
+            int row = clamp(k, h) * w;
+            for (int x = 0; x < w; x++) colSum[x] += tmp[row + x] & 0xff;
+        }
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            int addRow = clamp(y + radius + 1, h) * w;
+            int subRow = clamp(y - radius, h) * w;
+            for (int x = 0; x < w; x++) {
+                alpha[row + x] = (byte) (colSum[x] / window);
+                colSum[x] += (tmp[addRow + x] & 0xff) - (tmp[subRow + x] & 0xff);
+            }
+        }
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : (i >= n ? n - 1 : i);
+    }
+}
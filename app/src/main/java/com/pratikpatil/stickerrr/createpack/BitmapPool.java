@@ -0,0 +1,145 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Process-wide pool of mutable bitmaps keyed by width, height and config, bounded by total bytes.
+ * ImageHelper takes its destination bitmaps from here and callers hand finished bitmaps back with
+ * {@link #put}, so importing or editing many stickers reuses the same few 512x512 buffers.
+ * Bitmaps that do not fit the budget are recycled instead of pooled.
+ */
+public final class BitmapPool {
+
+    private static final long MAX_BYTES = 16L * 1024 * 1024;
+
+    private static BitmapPool instance;
+
+    private final long maxBytes;
+    private final Map<Long, ArrayDeque<Bitmap>> byKey = new HashMap<>();
+    /** All pooled bitmaps, least recently returned first. */
+    private final ArrayDeque<Bitmap> lru = new ArrayDeque<>();
+    private long currentBytes;
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @NonNull
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool(Math.min(MAX_BYTES, Runtime.getRuntime().maxMemory() / 8));
+        }
+        return instance;
+    }
+
+    /** A cleared (fully transparent) mutable bitmap, pooled if one is available. */
+    @NonNull
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = getDirty(width, height, config);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Like {@link #get} but the pixels are left as they were; use when every pixel is overwritten.
+     * A reused bitmap is reset to hasAlpha and premultiplied, like a new one, since an opaque
+     * decode (e.g. JPEG) returned to the pool would otherwise encode later transparency as black.
+     */
+    @NonNull
+    public Bitmap getDirty(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap;
+        synchronized (this) {
+            ArrayDeque<Bitmap> bucket = byKey.get(key(width, height, config));
+            bitmap = bucket != null ? bucket.pollLast() : null;
+            if (bitmap != null) {
+                if (bucket.isEmpty()) byKey.remove(key(width, height, config));
+                lru.remove(bitmap);
+                currentBytes -= bitmap.getAllocationByteCount();
+            }
+        }
+        if (bitmap == null) return Bitmap.createBitmap(width, height, config);
+        bitmap.setHasAlpha(true);
+        bitmap.setPremultiplied(true);
+        return bitmap;
+    }
+
+    /**
+     * A pooled bitmap with at least minBytes of storage, for BitmapFactory.Options.inBitmap.
+     * The decoder reconfigures it to the decoded size. Returns null if none is pooled.
+     */
+    @Nullable
+    public synchronized Bitmap getForDecode(int minBytes, @NonNull Bitmap.Config config) {
+        for (Iterator<Bitmap> it = lru.iterator(); it.hasNext(); ) {
+            Bitmap candidate = it.next();
+            if (candidate.getConfig() == config && candidate.getAllocationByteCount() >= minBytes) {
+                it.remove();
+                long key = key(candidate.getWidth(), candidate.getHeight(), config);
+                ArrayDeque<Bitmap> bucket = byKey.get(key);
+                bucket.remove(candidate);
+                if (bucket.isEmpty()) byKey.remove(key);
+                currentBytes -= candidate.getAllocationByteCount();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a bitmap the caller no longer uses. Immutable, recycled or oversized bitmaps are
+     * recycled; otherwise the oldest pooled bitmaps are recycled until the pool fits its budget.
+     */
+    public void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        Bitmap.Config config = bitmap.getConfig();
+        int bytes = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || config == null || bytes > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            if (lru.contains(bitmap)) return;
+            long key = key(bitmap.getWidth(), bitmap.getHeight(), config);
+            ArrayDeque<Bitmap> bucket = byKey.get(key);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                byKey.put(key, bucket);
+            }
+            bucket.addLast(bitmap);
+            lru.addLast(bitmap);
+            currentBytes += bytes;
+            trimTo(maxBytes);
+        }
+    }
+
+    /** Recycle everything, e.g. when the system asks the app to release memory. */
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    private void trimTo(long bytes) {
+        while (currentBytes > bytes && !lru.isEmpty()) {
+            Bitmap oldest = lru.pollFirst();
+            long key = key(oldest.getWidth(), oldest.getHeight(), oldest.getConfig());
+            ArrayDeque<Bitmap> bucket = byKey.get(key);
+            if (bucket != null) {
+                bucket.remove(oldest);
+                if (bucket.isEmpty()) byKey.remove(key);
+            }
+            currentBytes -= oldest.getAllocationByteCount();
+            oldest.recycle();
+        }
+    }
+
+    private static long key(int width, int height, @NonNull Bitmap.Config config) {
+        return ((long) width << 32) | ((long) (height & 0xffffff) << 8) | config.ordinal();
+    }
+}
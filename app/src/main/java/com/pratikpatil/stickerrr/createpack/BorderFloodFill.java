@@ -0,0 +1,108 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Scanline flood fill from the image border over pixels close to a background color.
+ * Pure int[] code so it runs the same on a full image or on a downscaled mask.
+ * <p>
+ * Pixels are marked when pushed, so each one is pushed at most once and the explicit stack
+ * never outgrows the pixel count; every pixel is scanned a constant number of times.
+ */
+final class BorderFloodFill {
+
+    private static final int INITIAL_STACK = 1024;
+
+    private BorderFloodFill() {
+    }
+
+    /**
+     * Returns a w*h mask with 1 for every background pixel reachable from the border through
+     * background pixels (4-connected). A pixel is background if it is fully transparent or each
+     * of red, green and blue is within tolerance of backgroundColor.
+     */
+    @NonNull
+    static byte[] fill(@NonNull int[] pixels, int w, int h, int backgroundColor, int tolerance) {
+        byte[] mask = new byte[w * h];
+        Stack stack = new Stack();
+        int br = (backgroundColor >> 16) & 0xff;
+        int bg = (backgroundColor >> 8) & 0xff;
+        int bb = backgroundColor & 0xff;
+        for (int x = 0; x < w; x++) {
+            seed(pixels, mask, stack, x, br, bg, bb, tolerance);
+            seed(pixels, mask, stack, (h - 1) * w + x, br, bg, bb, tolerance);
+        }
+        for (int y = 1; y < h - 1; y++) {
+            seed(pixels, mask, stack, y * w, br, bg, bb, tolerance);
+            seed(pixels, mask, stack, y * w + w - 1, br, bg, bb, tolerance);
+        }
+        while (stack.size > 0) {
+            int i = stack.pop();
+            int y = i / w;
+            int rowStart = y * w;
+            int left = i;
+            while (left > rowStart && mask[left - 1] == 0 && matches(pixels[left - 1], br, bg, bb, tolerance)) {
+                mask[--left] = 1;
+            }
+            int right = i;
+            while (right < rowStart + w - 1 && mask[right + 1] == 0 && matches(pixels[right + 1], br, bg, bb, tolerance)) {
+                mask[++right] = 1;
+            }
+            if (y > 0) scanRow(pixels, mask, stack, left - w, right - w, br, bg, bb, tolerance);
+            if (y < h - 1) scanRow(pixels, mask, stack, left + w, right + w, br, bg, bb, tolerance);
+        }
+        return mask;
+    }
+
+    /** True if p is transparent or within tolerance of (br, bg, bb) on every color channel. */
+    static boolean matches(int p, int br, int bg, int bb, int tolerance) {
+        if ((p >>> 24) == 0) return true;
+        return Math.abs(((p >> 16) & 0xff) - br) <= tolerance
+                && Math.abs(((p >> 8) & 0xff) - bg) <= tolerance
+                && Math.abs((p & 0xff) - bb) <= tolerance;
+    }
+
+    /** Push one seed per run of unmarked background pixels in [from, to] of a neighbouring row. */
+    private static void scanRow(int[] pixels, byte[] mask, Stack stack, int from, int to,
+                                int br, int bg, int bb, int tolerance) {
+        boolean inRun = false;
+        for (int j = from; j <= to; j++) {
+            if (mask[j] == 0 && matches(pixels[j], br, bg, bb, tolerance)) {
+                if (!inRun) {
+                    mask[j] = 1;
+                    stack.push(j);
+                    inRun = true;
+                }
+            } else {
+                inRun = false;
+            }
+        }
+    }
+
+    private static void seed(int[] pixels, byte[] mask, Stack stack, int i,
+                             int br, int bg, int bb, int tolerance) {
+        if (mask[i] == 0 && matches(pixels[i], br, bg, bb, tolerance)) {
+            mask[i] = 1;
+            stack.push(i);
+        }
+    }
+
+    /** Growable int stack; avoids boxing and recursion. */
+    private static final class Stack {
+        int[] items = new int[INITIAL_STACK];
+        int size;
+
+        void push(int value) {
+            if (size == items.length) {
+                int[] grown = new int[items.length * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                items = grown;
+            }
+            items[size++] = value;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+    }
+}
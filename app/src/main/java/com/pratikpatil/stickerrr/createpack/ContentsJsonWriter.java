@@ -2,6 +2,7 @@ package com.pratikpatil.stickerrr.createpack;
 
 import androidx.annotation.NonNull;
 
+import com.pratikpatil.stickerrr.stickerapi.BinaryPackManifest;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
 
@@ -44,6 +45,7 @@ public final class ContentsJsonWriter {
     /**
      * Write a single pack to contents.json in the given pack directory.
      * File will be packDir/contents.json with root structure { android_play_store_link, ios_app_store_link, sticker_packs: [ one pack ] }.
+     * Also writes the binary sidecar read by ContentFileParser; failing that only costs a JSON parse later.
      */
     public static void write(@NonNull File packDir, @NonNull StickerPack pack, String androidPlayStoreLink, String iosAppStoreLink) throws IOException {
         if (!packDir.isDirectory()) {
@@ -65,6 +67,11 @@ public final class ContentsJsonWriter {
         } catch (org.json.JSONException e) {
             throw new IOException(e);
         }
+        try {
+            BinaryPackManifest.write(packDir, pack, androidPlayStoreLink, iosAppStoreLink);
+        } catch (IOException e) {
+            BinaryPackManifest.delete(packDir);
+        }
     }
 
     private static JSONObject packToJson(StickerPack pack) throws org.json.JSONException {
@@ -0,0 +1,106 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Undo/redo over an {@link EditPipeline}. Each step is stored as the operation that was added, a
+ * few dozen bytes, rather than a rendered bitmap; undoing just renders fewer operations.
+ * <p>
+ * Steps are charged against a fixed byte budget. When it is exceeded the oldest steps are folded
+ * into a base pipeline: they stay applied but can no longer be undone.
+ */
+public final class EditHistory {
+
+    /** Room for hundreds of typical steps; long captions use more. */
+    public static final int DEFAULT_BUDGET_BYTES = 64 * 1024;
+
+    /** Object header and fields of one step, plus its slot in the list. */
+    private static final int STEP_OVERHEAD_BYTES = 48;
+    private static final int LAYER_OVERHEAD_BYTES = 256;
+
+    private final int budgetBytes;
+    /** Steps that were evicted from the history. */
+    private EditPipeline base = EditPipeline.empty();
+    private final List<EditPipeline.Op> steps = new ArrayList<>();
+    /** Number of steps currently applied; steps after it can be redone. */
+    private int applied;
+    private int usedBytes;
+    private EditPipeline current = EditPipeline.empty();
+
+    public EditHistory() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public EditHistory(int budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** The pipeline with every applied step. */
+    @NonNull
+    public EditPipeline current() {
+        return current;
+    }
+
+    /** Apply op as a new step; anything that could be redone is dropped. */
+    public void push(@NonNull EditPipeline.Op op) {
+        while (steps.size() > applied) {
+            usedBytes -= sizeOf(steps.remove(steps.size() - 1));
+        }
+        steps.add(op);
+        applied++;
+        usedBytes += sizeOf(op);
+        while (usedBytes > budgetBytes && steps.size() > 1) {
+            EditPipeline.Op oldest = steps.remove(0);
+            usedBytes -= sizeOf(oldest);
+            base = base.plus(oldest);
+            applied--;
+        }
+        current = current.plus(op);
+    }
+
+    public boolean canUndo() {
+        return applied > 0;
+    }
+
+    public boolean canRedo() {
+        return applied < steps.size();
+    }
+
+    public void undo() {
+        if (!canUndo()) return;
+        applied--;
+        rebuild();
+    }
+
+    public void redo() {
+        if (!canRedo()) return;
+        current = current.plus(steps.get(applied));
+        applied++;
+    }
+
+    private void rebuild() {
+        EditPipeline pipeline = base;
+        for (int i = 0; i < applied; i++) pipeline = pipeline.plus(steps.get(i));
+        current = pipeline;
+    }
+
+    /** Approximate retained size of one step. */
+    private static int sizeOf(@NonNull EditPipeline.Op op) {
+        if (op instanceof EditPipeline.Text) {
+            // Each layer keeps its text, bounds and, once drawn, a small recording.
+            int bytes = STEP_OVERHEAD_BYTES;
+            for (TextLayer layer : ((EditPipeline.Text) op).layers) {
+                bytes += LAYER_OVERHEAD_BYTES + 2 * layer.getText().length();
+            }
+            return bytes;
+        }
+        if (op instanceof EditPipeline.Crop) {
+            // The RectF it holds.
+            return STEP_OVERHEAD_BYTES + 32;
+        }
+        return STEP_OVERHEAD_BYTES;
+    }
+}
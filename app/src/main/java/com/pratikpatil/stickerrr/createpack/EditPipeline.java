@@ -0,0 +1,277 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Non-destructive sticker edit: an ordered list of operations applied to an untouched source
+ * bitmap. Nothing is rendered until {@link #renderPreview} or {@link #renderSticker} is called, and
+ * each render starts again from the source, so edits never compound re-scaling or re-encoding.
+ * <p>
+ * Every operation stores its geometry relative to the canvas it was made on (the source after
+ * all earlier crops), as fractions of that canvas, so the same list renders at any resolution.
+ * Instances are immutable and can be handed to a background thread as they are.
+ */
+public final class EditPipeline {
+
+    /** One edit step. */
+    public interface Op {
+    }
+
+    /** Crop to rect, given as fractions (0..1) of the current canvas. */
+    public static final class Crop implements Op {
+        public final RectF rect;
+
+        public Crop(@NonNull RectF rect) {
+            this.rect = new RectF(rect);
+        }
+    }
+
+    /**
+     * Captions placed together on a copy of the canvas canvasWidth pixels wide; the layers'
+     * coordinates are in that copy's pixels and are scaled to the canvas when rendering.
+     */
+    public static final class Text implements Op {
+        public final List<TextLayer> layers;
+        public final float canvasWidth;
+
+        /** The layers are copied, so the caller may keep editing its own. */
+        public Text(@NonNull List<TextLayer> layers, float canvasWidth) {
+            List<TextLayer> copies = new ArrayList<>(layers.size());
+            for (TextLayer layer : layers) copies.add(layer.copy());
+            this.layers = Collections.unmodifiableList(copies);
+            this.canvasWidth = canvasWidth;
+        }
+    }
+
+    /** Background removal applied to the canvas at this point. */
+    public static final class Mask implements Op {
+        public static final int ALL_WHITE = 0;
+        public static final int CONNECTED = 1;
+        public static final int CONNECTED_SOFT = 2;
+
+        public final int mode;
+
+        public Mask(int mode) {
+            this.mode = mode;
+        }
+    }
+
+    private static final EditPipeline EMPTY = new EditPipeline(Collections.emptyList());
+
+    /** Filtered SRC copy, so pooled destinations do not need clearing. */
+    private static final Paint COPY_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    static {
+        COPY_PAINT.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+    private final List<Op> ops;
+
+    private EditPipeline(@NonNull List<Op> ops) {
+        this.ops = ops;
+    }
+
+    @NonNull
+    public static EditPipeline empty() {
+        return EMPTY;
+    }
+
+    /** A new pipeline with op appended. */
+    @NonNull
+    public EditPipeline plus(@NonNull Op op) {
+        List<Op> next = new ArrayList<>(ops.size() + 1);
+        next.addAll(ops);
+        next.add(op);
+        return new EditPipeline(Collections.unmodifiableList(next));
+    }
+
+    @NonNull
+    public List<Op> getOps() {
+        return ops;
+    }
+
+    public boolean isEmpty() {
+        return ops.isEmpty();
+    }
+
+    /** Render so the result's longer side is at most maxSidePx, e.g. the preview's size. */
+    @NonNull
+    public Bitmap renderPreview(@NonNull Bitmap source, int maxSidePx) {
+        RectF finalCanvas = canvasAfter(source, ops.size());
+        float scale = Math.min(1f, maxSidePx / Math.max(finalCanvas.width(), finalCanvas.height()));
+        return render(source, scale);
+    }
+
+    /**
+     * Render once at sticker resolution: scaled so the shorter side is sizePx, then center-cropped
+     * to sizePx x sizePx. The result is a pooled bitmap.
+     */
+    @NonNull
+    public Bitmap renderSticker(@NonNull Bitmap source, int sizePx) {
+        Bitmap rendered = render(source, stickerScale(source.getWidth(), source.getHeight(), sizePx));
+        Bitmap square = ImageHelper.scaleToSquare(rendered, sizePx);
+        if (square != rendered) BitmapPool.getInstance().put(rendered);
+        return square;
+    }
+
+    /** Scale at which the final canvas' shorter side is sizePx. */
+    @VisibleForTesting
+    float stickerScale(int sourceWidth, int sourceHeight, int sizePx) {
+        RectF finalCanvas = plan(sourceWidth, sourceHeight, 1f).canvasBefore[ops.size()];
+        return sizePx / Math.min(finalCanvas.width(), finalCanvas.height());
+    }
+
+    /** The canvas, in source pixels, after the first count ops. */
+    @NonNull
+    private RectF canvasAfter(@NonNull Bitmap source, int count) {
+        RectF canvas = new RectF(0, 0, source.getWidth(), source.getHeight());
+        for (int i = 0; i < count; i++) {
+            Op op = ops.get(i);
+            if (op instanceof Crop) canvas = subRect(canvas, ((Crop) op).rect);
+        }
+        return canvas;
+    }
+
+    /** Where a render at a given scale starts and at which resolution each op runs. */
+    @VisibleForTesting
+    static final class Plan {
+        /** canvasBefore[i] is the canvas, in source pixels, that op i applies to; [n] is the final one. */
+        final RectF[] canvasBefore;
+        /** First op replayed on pixels; ops.size() if there is no mask. */
+        final int start;
+        /** Last crop at or after start, or -1. */
+        final int lastCrop;
+        /** Scale of the working bitmap until the last crop, never above 1. */
+        final float workScale;
+
+        Plan(RectF[] canvasBefore, int start, int lastCrop, float workScale) {
+            this.canvasBefore = canvasBefore;
+            this.start = start;
+            this.lastCrop = lastCrop;
+            this.workScale = workScale;
+        }
+
+        int startWidth() {
+            return scaled(canvasBefore[start].width(), workScale);
+        }
+
+        int startHeight() {
+            return scaled(canvasBefore[start].height(), workScale);
+        }
+    }
+
+    /**
+     * The working bitmap starts at the smallest region that is still needed: the canvas at the
+     * first mask (its result depends on the canvas border), or the final canvas if there is none.
+     * Earlier crops are then already covered by that region.
+     * <p>
+     * A sticker render scales a small final crop up, so running the ops before the last crop at
+     * that scale would blow the pre-crop canvas up to several times the source. Until the last crop
+     * the scale is capped at 1; the last crop then cuts and scales to the target in one draw.
+     */
+    @VisibleForTesting
+    @NonNull
+    Plan plan(int sourceWidth, int sourceHeight, float scale) {
+        int n = ops.size();
+        RectF[] canvasBefore = new RectF[n + 1];
+        RectF canvas = new RectF(0, 0, sourceWidth, sourceHeight);
+        int start = n;
+        int lastCrop = -1;
+        for (int i = 0; i < n; i++) {
+            canvasBefore[i] = canvas;
+            Op op = ops.get(i);
+            if (op instanceof Crop) {
+                canvas = subRect(canvas, ((Crop) op).rect);
+                if (start < n) lastCrop = i;
+            } else if (op instanceof Mask && start == n) {
+                start = i;
+            }
+        }
+        canvasBefore[n] = canvas;
+        return new Plan(canvasBefore, start, lastCrop, lastCrop >= 0 ? Math.min(1f, scale) : scale);
+    }
+
+    /** Replay all ops at the given scale; see {@link #plan}. */
+    @NonNull
+    private Bitmap render(@NonNull Bitmap source, float scale) {
+        int n = ops.size();
+        Plan plan = plan(source.getWidth(), source.getHeight(), scale);
+        RectF[] canvasBefore = plan.canvasBefore;
+        float workScale = plan.workScale;
+
+        RectF current = canvasBefore[plan.start];
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap work = pool.getDirty(plan.startWidth(), plan.startHeight(), Bitmap.Config.ARGB_8888);
+        Rect src = new Rect();
+        current.round(src);
+        new Canvas(work).drawBitmap(source, src, new Rect(0, 0, work.getWidth(), work.getHeight()), COPY_PAINT);
+
+        for (int i = 0; i < n; i++) {
+            Op op = ops.get(i);
+            RectF c = canvasBefore[i];
+            if (op instanceof Crop) {
+                if (i < plan.start) continue;
+                RectF next = canvasBefore[i + 1];
+                Rect cut = new Rect(
+                        Math.round((next.left - current.left) * workScale),
+                        Math.round((next.top - current.top) * workScale),
+                        Math.round((next.right - current.left) * workScale),
+                        Math.round((next.bottom - current.top) * workScale));
+                cut.intersect(0, 0, work.getWidth(), work.getHeight());
+                if (cut.isEmpty()) continue;
+                boolean last = i == plan.lastCrop;
+                int w = last ? scaled(next.width(), scale) : cut.width();
+                int h = last ? scaled(next.height(), scale) : cut.height();
+                Bitmap cropped = pool.getDirty(w, h, Bitmap.Config.ARGB_8888);
+                new Canvas(cropped).drawBitmap(work, cut, new Rect(0, 0, w, h), COPY_PAINT);
+                pool.put(work);
+                work = cropped;
+                current = next;
+                if (last) workScale = scale;
+            } else if (op instanceof Text) {
+                Text t = (Text) op;
+                ImageHelper.drawTextLayers(work, work, t.layers, c.width() * workScale / t.canvasWidth,
+                        (c.left - current.left) * workScale, (c.top - current.top) * workScale);
+            } else if (op instanceof Mask) {
+                int mode = ((Mask) op).mode;
+                if (mode == Mask.ALL_WHITE) {
+                    ImageHelper.removeBackground(work, work);
+                } else {
+                    ImageHelper.removeConnectedBackground(work, work, Color.WHITE,
+                            ImageHelper.DEFAULT_BACKGROUND_TOLERANCE, ImageHelper.MAX_FILL_MASK_PIXELS);
+                    if (mode == Mask.CONNECTED_SOFT) {
+                        ImageHelper.featherAlpha(work, ImageHelper.defaultFeatherRadius(work));
+                    }
+                }
+            }
+        }
+        return work;
+    }
+
+    @NonNull
+    private static RectF subRect(@NonNull RectF canvas, @NonNull RectF fraction) {
+        return new RectF(
+                canvas.left + fraction.left * canvas.width(),
+                canvas.top + fraction.top * canvas.height(),
+                canvas.left + fraction.right * canvas.width(),
+                canvas.top + fraction.bottom * canvas.height());
+    }
+
+    private static int scaled(float length, float scale) {
+        return Math.max(1, Math.round(length * scale));
+    }
+}
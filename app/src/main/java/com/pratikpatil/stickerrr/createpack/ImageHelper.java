@@ -1,61 +1,261 @@
 package com.pratikpatil.stickerrr.createpack;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
+import android.media.ExifInterface;
 import android.net.Uri;
+import android.os.Build;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Resizes and encodes images for WhatsApp stickers: 512x512 WebP (max 100KB), tray 96x96 PNG (max 50KB).
  */
 public final class ImageHelper {
 
-    private static final int STICKER_SIZE = 512;
+    /** Per-channel tolerance around the background color; 15 around white means r, g, b >= 240. */
+    public static final int DEFAULT_BACKGROUND_TOLERANCE = 15;
+
+    public static final int STICKER_SIZE = 512;
     private static final int TRAY_SIZE = 96;
     private static final int MAX_STICKER_BYTES = 100 * 1024;
     private static final int MAX_TRAY_BYTES = 50 * 1024;
+    private static final int MAX_QUALITY = 90;
+    private static final int MIN_QUALITY = 10;
+    private static final int QUALITY_STEP = 5;
+    private static final int LOSSLESS_EFFORT = 80;
+    private static final int FLAT_ART_GRID = 64;
+    private static final int FLAT_ART_MAX_COLORS = 256;
+    private static final int FLAT_ART_MAX_EDGE_PERCENT = 10;
+    private static final int FLAT_ART_EDGE_DISTANCE = 96;
+    /** Red, green and blue high nibbles: all set iff each channel is >= 240. */
+    private static final int NEAR_WHITE_MASK = 0x00F0F0F0;
+    /** Pixels per band in row-wise passes (1MB of ints). */
+    private static final int BAND_PIXELS = 256 * 1024;
+    /** Flood fill mask size cap; 1MP keeps the fill at about 5MB even for 12MP photos. */
+    static final int MAX_FILL_MASK_PIXELS = 1024 * 1024;
+
+    /** Encode buffers per thread: best fitting lossy result, a scratch attempt, and a lossless attempt. */
+    private static final class EncodeBuffers {
+        ByteArrayOutputStream best = new ByteArrayOutputStream(MAX_STICKER_BYTES);
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream(MAX_STICKER_BYTES);
+        final ByteArrayOutputStream lossless = new ByteArrayOutputStream(MAX_STICKER_BYTES);
+        /** compress() calls made by the last encode on this thread. */
+        int attempts;
+
+        void swap() {
+            ByteArrayOutputStream t = best;
+            best = scratch;
+            scratch = t;
+        }
+    }
+
+    /** Bilinear filtering; SRC so the destination does not need clearing first. */
+    private static final Paint SCALE_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    static {
+        SCALE_PAINT.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+    private static final ThreadLocal<int[]> BAND_BUFFER = new ThreadLocal<>();
+
+    private static final ThreadLocal<EncodeBuffers> ENCODE_BUFFERS = new ThreadLocal<EncodeBuffers>() {
+        @Override
+        protected EncodeBuffers initialValue() {
+            return new EncodeBuffers();
+        }
+    };
 
     private ImageHelper() {
     }
 
     /**
      * Load bitmap from URI (content or file), scale to 512x512, encode as WebP to outFile.
-     * Tries to keep under 100KB by reducing quality.
+     * Chooses lossless or lossy WebP (see {@link #encodeSticker}) under 100KB and writes the file once.
      */
     public static boolean saveAsStickerImage(@NonNull Context context, @NonNull Uri sourceUri, @NonNull File outFile) throws IOException {
         Bitmap bitmap = loadAndScaleToSquare(context, sourceUri, STICKER_SIZE);
         if (bitmap == null) return false;
         try {
-            int quality = 90;
-            Bitmap.CompressFormat format = Bitmap.CompressFormat.WEBP;
-            while (quality >= 10) {
-                try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                    bitmap.compress(format, quality, fos);
-                }
-                if (outFile.length() <= MAX_STICKER_BYTES) break;
-                quality -= 15;
-                if (quality < 10) {
-                    try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                        bitmap.compress(format, 80, fos);
-                    }
-                }
+            ByteArrayOutputStream encoded = encodeSticker(bitmap, MAX_STICKER_BYTES);
+            try (FileOutputStream fos = new FileOutputStream(outFile)) {
+                encoded.writeTo(fos);
             }
             return true;
         } finally {
-            bitmap.recycle();
+            BitmapPool.getInstance().put(bitmap);
+        }
+    }
+
+    /**
+     * Adaptive WebP encode. Flat artwork (few colors, few edges) is tried lossless first, since
+     * it is usually both smaller and sharper that way; photos are tried lossy first. If the first
+     * encoder misses maxBytes the other one is tried, and the smaller result wins when neither fits.
+     * Below API 29 there is no lossless WebP encoder, so only the lossy one is used.
+     * The returned buffer is only valid until the next encode on the same thread.
+     */
+    @NonNull
+    static ByteArrayOutputStream encodeSticker(@NonNull Bitmap bitmap, int maxBytes) {
+        EncodeBuffers buffers = ENCODE_BUFFERS.get();
+        buffers.attempts = 0;
+        if (!canEncodeLossless()) {
+            return encodeLossy(bitmap, Bitmap.CompressFormat.WEBP, maxBytes, buffers);
+        }
+        if (looksLikeFlatArt(bitmap)) {
+            encodeLossless(bitmap, buffers);
+            if (buffers.lossless.size() <= maxBytes) return buffers.lossless;
+            ByteArrayOutputStream lossy = encodeLossy(bitmap, Bitmap.CompressFormat.WEBP, maxBytes, buffers);
+            return lossy.size() <= buffers.lossless.size() ? lossy : buffers.lossless;
+        }
+        ByteArrayOutputStream lossy = encodeLossy(bitmap, Bitmap.CompressFormat.WEBP, maxBytes, buffers);
+        if (lossy.size() <= maxBytes) return lossy;
+        encodeLossless(bitmap, buffers);
+        return buffers.lossless.size() < lossy.size() ? buffers.lossless : lossy;
+    }
+
+    /** WEBP_LOSSLESS exists from API 30; on API 29 only, legacy WEBP at quality 100 is lossless. */
+    static boolean canEncodeLossless() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+    }
+
+    /** compress() calls made by the last encodeSticker or encodeWithinLimit on this thread. */
+    @VisibleForTesting
+    static int lastEncodeAttempts() {
+        return ENCODE_BUFFERS.get().attempts;
+    }
+
+    /** Into buffers.lossless. Only call when {@link #canEncodeLossless()}. */
+    @SuppressWarnings("deprecation")
+    private static void encodeLossless(@NonNull Bitmap bitmap, @NonNull EncodeBuffers buffers) {
+        ByteArrayOutputStream out = buffers.lossless;
+        out.reset();
+        buffers.attempts++;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // For lossless the quality argument is compression effort, not fidelity.
+            bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSLESS, LOSSLESS_EFFORT, out);
+        } else {
+            // API 29: WEBP at quality 100 is encoded losslessly. Earlier releases encode it lossy.
+            bitmap.compress(Bitmap.CompressFormat.WEBP, 100, out);
+        }
+    }
+
+    /**
+     * Cheap flat-art check on a sparse grid of about 64x64 samples: few distinct colors
+     * and few strong edges between horizontally adjacent samples.
+     */
+    static boolean looksLikeFlatArt(@NonNull Bitmap bitmap) {
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int step = Math.max(1, Math.max(w, h) / FLAT_ART_GRID);
+        int cols = (w + step - 1) / step;
+        int[] row = new int[w];
+        int[] samples = new int[cols * ((h + step - 1) / step)];
+        int n = 0;
+        int edges = 0;
+        int pairs = 0;
+        for (int y = 0; y < h; y += step) {
+            bitmap.getPixels(row, 0, w, 0, y, w, 1);
+            int prev = row[0];
+            for (int x = 0; x < w; x += step) {
+                int p = row[x];
+                samples[n++] = p;
+                if (x > 0) {
+                    pairs++;
+                    if (colorDistance(prev, p) > FLAT_ART_EDGE_DISTANCE) edges++;
+                }
+                prev = p;
+            }
+        }
+        Arrays.sort(samples, 0, n);
+        int distinct = n > 0 ? 1 : 0;
+        for (int i = 1; i < n && distinct <= FLAT_ART_MAX_COLORS; i++) {
+            if (samples[i] != samples[i - 1]) distinct++;
+        }
+        return distinct <= FLAT_ART_MAX_COLORS && edges <= pairs * FLAT_ART_MAX_EDGE_PERCENT / 100;
+    }
+
+    private static int colorDistance(int a, int b) {
+        return Math.abs(((a >>> 24) & 0xff) - ((b >>> 24) & 0xff))
+                + Math.abs(((a >> 16) & 0xff) - ((b >> 16) & 0xff))
+                + Math.abs(((a >> 8) & 0xff) - ((b >> 8) & 0xff))
+                + Math.abs((a & 0xff) - (b & 0xff));
+    }
+
+    /**
+     * Encode into a reusable per-thread buffer at the highest quality, in steps of
+     * {@value #QUALITY_STEP}, whose output fits maxBytes. Quality {@value #MAX_QUALITY} is tried first,
+     * then {@value #MIN_QUALITY} up to {@value #MAX_QUALITY} - 2 * {@value #QUALITY_STEP} is bisected.
+     * Those fifteen candidates leave sixteen outcomes, four encodes, so at most five encodes run;
+     * {@value #MAX_QUALITY} - {@value #QUALITY_STEP} is left out to keep that bound.
+     * If nothing fits, the result is the {@value #MIN_QUALITY} encoding, the smallest available.
+     * The returned buffer is only valid until the next call on the same thread.
+     */
+    @NonNull
+    static ByteArrayOutputStream encodeWithinLimit(@NonNull Bitmap bitmap, @NonNull Bitmap.CompressFormat format, int maxBytes) {
+        EncodeBuffers buffers = ENCODE_BUFFERS.get();
+        buffers.attempts = 0;
+        return encodeLossy(bitmap, format, maxBytes, buffers);
+    }
+
+    /** {@link #encodeWithinLimit} adding to buffers.attempts. */
+    @NonNull
+    private static ByteArrayOutputStream encodeLossy(@NonNull Bitmap bitmap, @NonNull Bitmap.CompressFormat format,
+            int maxBytes, @NonNull EncodeBuffers buffers) {
+        buffers.best.reset();
+        buffers.attempts++;
+        bitmap.compress(format, MAX_QUALITY, buffers.best);
+        if (buffers.best.size() <= maxBytes) return buffers.best;
+
+        // Candidate qualities MIN_QUALITY + i * QUALITY_STEP for i in [lo, hi], below MAX_QUALITY - QUALITY_STEP.
+        int lo = 0;
+        int hi = (MAX_QUALITY - MIN_QUALITY) / QUALITY_STEP - 2;
+        boolean found = false;
+        int lastQuality = MAX_QUALITY;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            lastQuality = MIN_QUALITY + mid * QUALITY_STEP;
+            buffers.scratch.reset();
+            buffers.attempts++;
+            bitmap.compress(format, lastQuality, buffers.scratch);
+            if (buffers.scratch.size() <= maxBytes) {
+                buffers.swap();
+                found = true;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
         }
+        if (!found) {
+            if (lastQuality == MIN_QUALITY) {
+                buffers.swap();
+            } else {
+                buffers.best.reset();
+                buffers.attempts++;
+                bitmap.compress(format, MIN_QUALITY, buffers.best);
+            }
+        }
+        return buffers.best;
     }
 
     /**
@@ -75,42 +275,179 @@ public final class ImageHelper {
             }
             return true;
         } finally {
-            bitmap.recycle();
+            BitmapPool.getInstance().put(bitmap);
         }
     }
 
     /**
      * Scale bitmap to exactly size x size (square), center-crop if needed.
+     * Decodes in two passes: bounds first, then with the largest power-of-two inSampleSize
+     * whose result still covers size x size, so a camera photo is never decoded at full resolution.
+     * Where the format allows, only the centered square is decoded (BitmapRegionDecoder).
+     * EXIF orientation is applied before scaling; it maps the centered square onto itself.
      */
     @Nullable
     public static Bitmap loadAndScaleToSquare(@NonNull Context context, @NonNull Uri uri, int size) throws IOException {
-        InputStream is = context.getContentResolver().openInputStream(uri);
-        if (is == null) return null;
-        Bitmap source = BitmapFactory.decodeStream(is);
-        is.close();
+        ContentResolver resolver = context.getContentResolver();
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) return null;
+            BitmapFactory.decodeStream(is, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        int sampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, size, size);
+        Bitmap source = bounds.outWidth != bounds.outHeight
+                ? decodeCenterSquare(resolver, uri, bounds.outWidth, bounds.outHeight, sampleSize) : null;
+        if (source == null) {
+            source = decodeSampledPooled(resolver, uri, bounds.outWidth, bounds.outHeight, sampleSize);
+        }
         if (source == null) return null;
-        Bitmap scaled = scaleToSquare(source, size);
-        if (scaled != source) source.recycle();
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap oriented = applyExifOrientation(source, readExifOrientation(resolver, uri));
+        if (oriented != source) pool.put(source);
+        Bitmap scaled = scaleToSquare(oriented, size);
+        if (scaled != oriented) pool.put(oriented);
         return scaled;
     }
 
+    /**
+     * Decode only the centered square of the image, subsampled. Returns null if the format is
+     * not supported by BitmapRegionDecoder (e.g. GIF), so the caller can decode the whole image.
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    private static Bitmap decodeCenterSquare(@NonNull ContentResolver resolver, @NonNull Uri uri,
+            int width, int height, int sampleSize) {
+        int side = Math.min(width, height);
+        int left = (width - side) / 2;
+        int top = (height - side) / 2;
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSize;
+        opts.inMutable = true;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) return null;
+            BitmapRegionDecoder decoder = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                    ? BitmapRegionDecoder.newInstance(is)
+                    : BitmapRegionDecoder.newInstance(is, false);
+            if (decoder == null) return null;
+            try {
+                return decoder.decodeRegion(new Rect(left, top, left + side, top + side), opts);
+            } finally {
+                decoder.recycle();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decode with inSampleSize into a pooled bitmap when one is large enough (inBitmap).
+     * If the decoder rejects the pooled bitmap, decodes again into a new one. The pooled bitmap
+     * goes back to the pool on every path that does not return it.
+     */
+    @Nullable
+    private static Bitmap decodeSampledPooled(@NonNull ContentResolver resolver, @NonNull Uri uri,
+            int width, int height, int sampleSize) throws IOException {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSize;
+        opts.inMutable = true;
+        int sampledW = (width + sampleSize - 1) / sampleSize;
+        int sampledH = (height + sampleSize - 1) / sampleSize;
+        opts.inBitmap = BitmapPool.getInstance().getForDecode(sampledW * sampledH * 4, Bitmap.Config.ARGB_8888);
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) {
+                BitmapPool.getInstance().put(opts.inBitmap);
+                return null;
+            }
+            Bitmap decoded = BitmapFactory.decodeStream(is, null, opts);
+            // Unsupported or corrupt stream.
+            if (decoded == null) BitmapPool.getInstance().put(opts.inBitmap);
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            if (opts.inBitmap == null) throw e;
+            BitmapPool.getInstance().put(opts.inBitmap);
+            opts.inBitmap = null;
+            try (InputStream is = resolver.openInputStream(uri)) {
+                if (is == null) return null;
+                return BitmapFactory.decodeStream(is, null, opts);
+            }
+        }
+    }
+
+    private static int readExifOrientation(@NonNull ContentResolver resolver, @NonNull Uri uri) {
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) return ExifInterface.ORIENTATION_NORMAL;
+            return new ExifInterface(is).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    @NonNull
+    private static Bitmap applyExifOrientation(@NonNull Bitmap source, int orientation) {
+        Matrix m = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                m.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                m.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                m.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                m.setRotate(90);
+                m.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                m.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                m.setRotate(-90);
+                m.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                m.setRotate(-90);
+                break;
+            default:
+                return source;
+        }
+        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), m, true);
+    }
+
+    /**
+     * Scale and center-crop source to size x size. Returns source itself if it already has that
+     * size; otherwise the result is a pooled bitmap (see {@link #scaleToSquareInto}).
+     */
     @NonNull
     public static Bitmap scaleToSquare(@NonNull Bitmap source, int size) {
+        if (source.getWidth() == size && source.getHeight() == size) return source;
+        return scaleToSquareInto(source, BitmapPool.getInstance().getDirty(size, size, configOf(source)));
+    }
+
+    /**
+     * Scale and center-crop source into dest, which must be square and mutable; every pixel of
+     * dest is overwritten. Single filtered draw of the centered source square, with no intermediate bitmap.
+     * Returns dest.
+     */
+    @NonNull
+    public static Bitmap scaleToSquareInto(@NonNull Bitmap source, @NonNull Bitmap dest) {
         int w = source.getWidth();
         int h = source.getHeight();
-        if (w == size && h == size) return source;
-        float scale = Math.max((float) size / w, (float) size / h);
-        int newW = Math.round(w * scale);
-        int newH = Math.round(h * scale);
-        Bitmap scaled = Bitmap.createScaledBitmap(source, newW, newH, true);
-        if (scaled.getWidth() == size && scaled.getHeight() == size) return scaled;
-        int x = (scaled.getWidth() - size) / 2;
-        int y = (scaled.getHeight() - size) / 2;
-        Bitmap result = Bitmap.createBitmap(size, size, scaled.getConfig() != null ? scaled.getConfig() : Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(result);
-        canvas.drawBitmap(scaled, -x, -y, null);
-        if (scaled != source) scaled.recycle();
-        return result;
+        int side = Math.min(w, h);
+        int left = (w - side) / 2;
+        int top = (h - side) / 2;
+        Rect src = new Rect(left, top, left + side, top + side);
+        Rect dst = new Rect(0, 0, dest.getWidth(), dest.getHeight());
+        new Canvas(dest).drawBitmap(source, src, dst, SCALE_PAINT);
+        return dest;
+    }
+
+    @NonNull
+    private static Bitmap.Config configOf(@NonNull Bitmap bitmap) {
+        return bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
     }
 
     /**
@@ -125,6 +462,60 @@ public final class ImageHelper {
         return bitmap;
     }
 
+    /**
+     * Decode an image scaled down to fit within targetPx x targetPx, for thumbnails.
+     * Bounds are read first; the second pass subsamples by a power of two and then lets the
+     * decoder scale the rest of the way, so no full-resolution bitmap is allocated.
+     */
+    @Nullable
+    public static Bitmap decodeThumbnail(@NonNull ContentResolver contentResolver, @NonNull Uri uri, int targetPx) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream is = contentResolver.openInputStream(uri)) {
+            if (is == null) return null;
+            BitmapFactory.decodeStream(is, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        int srcMax = Math.max(bounds.outWidth, bounds.outHeight);
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, targetPx, targetPx);
+        int sampledMax = srcMax / opts.inSampleSize;
+        if (sampledMax > targetPx) {
+            opts.inScaled = true;
+            opts.inDensity = sampledMax;
+            opts.inTargetDensity = targetPx;
+        }
+        try (InputStream is = contentResolver.openInputStream(uri)) {
+            if (is == null) return null;
+            return BitmapFactory.decodeStream(is, null, opts);
+        }
+    }
+
+    /**
+     * {@link #decodeThumbnail} with the EXIF orientation applied, so the result is upright the same
+     * way {@link #loadAndScaleToSquare} sees it. For sources that are edited and then exported.
+     */
+    @Nullable
+    public static Bitmap decodeOriented(@NonNull ContentResolver contentResolver, @NonNull Uri uri, int targetPx) throws IOException {
+        Bitmap decoded = decodeThumbnail(contentResolver, uri, targetPx);
+        if (decoded == null) return null;
+        Bitmap oriented = applyExifOrientation(decoded, readExifOrientation(contentResolver, uri));
+        if (oriented != decoded) decoded.recycle();
+        return oriented;
+    }
+
+    /**
+     * Largest power-of-two sample size that keeps the decoded image at least reqWidth x reqHeight.
+     */
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) return inSampleSize;
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
     /**
      * Save bitmap to a temporary file in cache and return its file URI.
      * Caller should use the returned URI and can delete the file when done.
@@ -142,38 +533,175 @@ public final class ImageHelper {
     /**
      * Make white and near-white pixels transparent (simple background removal).
      * Threshold: pixels with red, green, blue all >= 240 become transparent.
+     * Does not modify the original; the result is a pooled bitmap.
      */
     @NonNull
     public static Bitmap removeBackground(@NonNull Bitmap source) {
+        Bitmap dest = BitmapPool.getInstance().getDirty(source.getWidth(), source.getHeight(), configOf(source));
+        return removeBackground(source, dest);
+    }
+
+    /**
+     * Like {@link #removeBackground(Bitmap)} but writes into dest, a mutable bitmap of the same
+     * size; dest may be source itself. Returns dest.
+     * Works in bands of rows through a reusable per-thread buffer, so no whole-image int[] is allocated.
+     */
+    @NonNull
+    public static Bitmap removeBackground(@NonNull Bitmap source, @NonNull Bitmap dest) {
         int w = source.getWidth();
         int h = source.getHeight();
-        Bitmap result = source.copy(source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888, true);
-        int[] pixels = new int[w * h];
-        result.getPixels(pixels, 0, w, 0, 0, w, h);
-        final int threshold = 240;
-        for (int i = 0; i < pixels.length; i++) {
-            int p = pixels[i];
-            int r = Color.red(p);
-            int g = Color.green(p);
-            int b = Color.blue(p);
-            int a = Color.alpha(p);
-            if (r >= threshold && g >= threshold && b >= threshold) {
+        int bandRows = Math.max(1, Math.min(h, BAND_PIXELS / w));
+        int[] band = bandBuffer(w * bandRows);
+        for (int y = 0; y < h; y += bandRows) {
+            int rows = Math.min(bandRows, h - y);
+            source.getPixels(band, 0, w, 0, y, w, rows);
+            clearNearWhite(band, 0, w * rows);
+            dest.setPixels(band, 0, w, 0, y, w, rows);
+        }
+        return dest;
+    }
+
+    /**
+     * Set pixels[from, to) to transparent where red, green and blue are all >= 240.
+     * 240 is 0xF0, so a channel is >= 240 exactly when its high nibble is all ones, and the
+     * three tests fold into one mask and compare.
+     */
+    static void clearNearWhite(@NonNull int[] pixels, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((pixels[i] & NEAR_WHITE_MASK) == NEAR_WHITE_MASK) {
                 pixels[i] = Color.TRANSPARENT;
             }
         }
-        result.setPixels(pixels, 0, w, 0, 0, w, h);
-        return result;
     }
 
     /**
-     * Draw text on the bitmap (centered). Does not modify the original; returns a new bitmap.
+     * Make near-background pixels transparent only where they connect to the image border, so
+     * white areas inside the subject (eyes, teeth, highlights) are kept. A pixel is background if
+     * each of red, green and blue is within tolerance of backgroundColor; white with
+     * {@value #DEFAULT_BACKGROUND_TOLERANCE} matches the threshold of {@link #removeBackground(Bitmap)}.
+     * Does not modify the original; the result is a pooled bitmap.
+     */
+    @NonNull
+    public static Bitmap removeConnectedBackground(@NonNull Bitmap source, int backgroundColor, int tolerance) {
+        Bitmap dest = BitmapPool.getInstance().getDirty(source.getWidth(), source.getHeight(), configOf(source));
+        return removeConnectedBackground(source, dest, backgroundColor, tolerance, MAX_FILL_MASK_PIXELS);
+    }
+
+    /**
+     * Like {@link #removeConnectedBackground(Bitmap, int, int)} but writes into dest (may be source).
+     * The flood fill runs on a copy downscaled to at most maxMaskPixels, which bounds memory and
+     * time regardless of the source size; pass a small value for fast previews. The mask is then
+     * upsampled and a pixel is cleared only if its mask cell was reached and the full-resolution
+     * pixel itself matches, so subject edges are not eroded. Returns dest.
+     */
+    @NonNull
+    public static Bitmap removeConnectedBackground(@NonNull Bitmap source, @NonNull Bitmap dest,
+            int backgroundColor, int tolerance, int maxMaskPixels) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        float maskScale = (float) Math.min(1.0, Math.sqrt(maxMaskPixels / ((double) w * h)));
+        int mw = Math.max(1, Math.round(w * maskScale));
+        int mh = Math.max(1, Math.round(h * maskScale));
+        int[] maskPixels = new int[mw * mh];
+        if (mw == w && mh == h) {
+            source.getPixels(maskPixels, 0, w, 0, 0, w, h);
+        } else {
+            Bitmap small = Bitmap.createScaledBitmap(source, mw, mh, true);
+            small.getPixels(maskPixels, 0, mw, 0, 0, mw, mh);
+            if (small != source) small.recycle();
+        }
+        byte[] mask = BorderFloodFill.fill(maskPixels, mw, mh, backgroundColor, tolerance);
+
+        int br = (backgroundColor >> 16) & 0xff;
+        int bg = (backgroundColor >> 8) & 0xff;
+        int bb = backgroundColor & 0xff;
+        int[] maskX = new int[w];
+        for (int x = 0; x < w; x++) maskX[x] = (int) ((long) x * mw / w);
+        int bandRows = Math.max(1, Math.min(h, BAND_PIXELS / w));
+        int[] band = bandBuffer(w * bandRows);
+        for (int y = 0; y < h; y += bandRows) {
+            int rows = Math.min(bandRows, h - y);
+            source.getPixels(band, 0, w, 0, y, w, rows);
+            for (int r = 0; r < rows; r++) {
+                int maskRow = (int) ((long) (y + r) * mh / h) * mw;
+                int k = r * w;
+                for (int x = 0; x < w; x++, k++) {
+                    if (mask[maskRow + maskX[x]] != 0 && BorderFloodFill.matches(band[k], br, bg, bb, tolerance)) {
+                        band[k] = Color.TRANSPARENT;
+                    }
+                }
+            }
+            dest.setPixels(band, 0, w, 0, y, w, rows);
+        }
+        return dest;
+    }
+
+    /**
+     * Soften the edge left by background removal, in place (bitmap must be mutable). Alpha is box
+     * blurred with the given radius and each pixel keeps the lower of its own and the blurred
+     * alpha, so opaque pixels within radius of a cut fade out while interior and already
+     * transparent pixels are unchanged. Runs in O(pixels) regardless of radius.
+     */
+    public static void featherAlpha(@NonNull Bitmap bitmap, int radius) {
+        if (radius <= 0) return;
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int bandRows = Math.max(1, Math.min(h, BAND_PIXELS / w));
+        int[] band = bandBuffer(w * bandRows);
+        byte[] alpha = new byte[w * h];
+        boolean hasCut = false;
+        for (int y = 0; y < h; y += bandRows) {
+            int rows = Math.min(bandRows, h - y);
+            bitmap.getPixels(band, 0, w, 0, y, w, rows);
+            int base = y * w;
+            for (int k = 0; k < w * rows; k++) {
+                int a = band[k] >>> 24;
+                alpha[base + k] = (byte) a;
+                if (a != 0xff) hasCut = true;
+            }
+        }
+        if (!hasCut) return;
+        AlphaFeather.boxBlur(alpha, new byte[w * h], w, h, radius);
+        for (int y = 0; y < h; y += bandRows) {
+            int rows = Math.min(bandRows, h - y);
+            bitmap.getPixels(band, 0, w, 0, y, w, rows);
+            int base = y * w;
+            for (int k = 0; k < w * rows; k++) {
+                int p = band[k];
+                int blurred = alpha[base + k] & 0xff;
+                if (blurred < (p >>> 24)) {
+                    band[k] = blurred == 0 ? Color.TRANSPARENT : (blurred << 24) | (p & 0x00ffffff);
+                }
+            }
+            bitmap.setPixels(band, 0, w, 0, y, w, rows);
+        }
+    }
+
+    /** Feather radius for a bitmap: 2px at 512x512, scaled with the shorter side. */
+    public static int defaultFeatherRadius(@NonNull Bitmap bitmap) {
+        return Math.max(1, Math.min(bitmap.getWidth(), bitmap.getHeight()) / 256);
+    }
+
+    @NonNull
+    private static int[] bandBuffer(int size) {
+        int[] band = BAND_BUFFER.get();
+        if (band == null || band.length < size) {
+            band = new int[size];
+            BAND_BUFFER.set(band);
+        }
+        return band;
+    }
+
+    /**
+     * Draw text on the bitmap (centered). Does not modify the original; the result is a pooled bitmap.
      */
     @NonNull
     public static Bitmap drawTextOnBitmap(@NonNull Bitmap source, @NonNull String text, int textColor, float textSizePx) {
         int w = source.getWidth();
         int h = source.getHeight();
-        Bitmap result = source.copy(source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888, true);
+        Bitmap result = BitmapPool.getInstance().get(w, h, configOf(source));
         Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(source, 0, 0, null);
         Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
         paint.setColor(textColor);
         paint.setTextSize(textSizePx);
@@ -188,7 +716,7 @@ public final class ImageHelper {
 
     /**
      * Draw text on the bitmap at the given position (left X, baseline Y) with the given size.
-     * Does not modify the original; returns a new bitmap.
+     * Does not modify the original; the result is a pooled bitmap.
      */
     @NonNull
     public static Bitmap drawTextOnBitmapAt(@NonNull Bitmap source, @NonNull String text, int textColor,
@@ -198,29 +726,41 @@ public final class ImageHelper {
 
     /**
      * Draw text on the bitmap at the given position with size and rotation (degrees).
-     * Rotation is around the center of the text.
+     * Rotation is around the center of the text. Does not modify the original; the result is a pooled bitmap.
      */
     @NonNull
     public static Bitmap drawTextOnBitmapAt(@NonNull Bitmap source, @NonNull String text, int textColor,
             float textSizePx, float leftX, float baselineY, float rotationDegrees) {
-        Bitmap result = source.copy(source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(result);
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(textColor);
-        paint.setTextSize(textSizePx);
-        paint.setTextAlign(Paint.Align.LEFT);
-        Rect bounds = new Rect();
-        paint.getTextBounds(text, 0, text.length(), bounds);
-        float centerX = leftX + bounds.width() / 2f;
-        float centerY = baselineY - (bounds.top + bounds.bottom) / 2f;
-        if (rotationDegrees != 0f) {
-            canvas.save();
-            canvas.rotate(rotationDegrees, centerX, centerY);
-        }
-        canvas.drawText(text, leftX, baselineY, paint);
-        if (rotationDegrees != 0f) {
-            canvas.restore();
+        Bitmap dest = BitmapPool.getInstance().get(source.getWidth(), source.getHeight(), configOf(source));
+        return drawTextOnBitmapAt(source, dest, text, textColor, textSizePx, leftX, baselineY, rotationDegrees);
+    }
+
+    /**
+     * Like {@link #drawTextOnBitmapAt(Bitmap, String, int, float, float, float, float)} but draws into
+     * dest, a mutable, cleared bitmap of the same size; dest may be source itself. Returns dest.
+     */
+    @NonNull
+    public static Bitmap drawTextOnBitmapAt(@NonNull Bitmap source, @NonNull Bitmap dest, @NonNull String text,
+            int textColor, float textSizePx, float leftX, float baselineY, float rotationDegrees) {
+        TextLayer layer = new TextLayer(text, textColor, textSizePx, 0, 0f);
+        layer.setPosition(leftX, baselineY);
+        layer.setRotationDegrees(rotationDegrees);
+        return drawTextLayers(source, dest, Collections.singletonList(layer), 1f, 0f, 0f);
+    }
+
+    /**
+     * Draw all layers over source into dest in a single pass, bottom layer first. Layer
+     * coordinates are multiplied by scale and offset by (dx, dy). dest is a mutable, cleared
+     * bitmap of the same size as source, or source itself. Returns dest.
+     */
+    @NonNull
+    public static Bitmap drawTextLayers(@NonNull Bitmap source, @NonNull Bitmap dest, @NonNull List<TextLayer> layers,
+            float scale, float dx, float dy) {
+        Canvas canvas = new Canvas(dest);
+        if (dest != source) canvas.drawBitmap(source, 0, 0, null);
+        for (TextLayer layer : layers) {
+            layer.draw(canvas, scale, dx, dy);
         }
-        return result;
+        return dest;
     }
 }
@@ -0,0 +1,127 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.ViewModel;
+
+import com.pratikpatil.stickerrr.stickerapi.Sticker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stickers of the pack being created or edited, the next free sticker index, and the running
+ * multi-image import. Held in a ViewModel so they outlive the activity when it is recreated, e.g.
+ * on rotation: the import keeps adding to the same list and its reserved indices are not handed
+ * out again. The screen attaches as the {@link Host} in onCreate and detaches in onDestroy.
+ * <p>
+ * When the screen finishes for good the import is cancelled, which deletes the stickers it wrote
+ * but had not reported yet.
+ */
+public final class PackStickersModel extends ViewModel implements StickerBatchImport.Listener {
+
+    /** Import callbacks for the attached screen, on the main thread. */
+    public interface Host {
+        /** An import is running; also called on attach while one is. */
+        void onImportStarted(int completed, int total);
+
+        void onImportProgress(int completed, int total);
+
+        /** A sticker was appended to {@link #getStickers()} at position. */
+        void onStickerAdded(int position);
+
+        void onImportFinished(int failed);
+    }
+
+    private final List<Sticker> stickers = new ArrayList<>();
+    private String packIdentifier;
+    private int nextStickerIndex = 1;
+    private StickerBatchImport batch;
+    private int batchCompleted;
+    private int batchTotal;
+    private int batchFailed;
+    private Host host;
+
+    /** Null until {@link #setPack} was called. */
+    @Nullable
+    public String getPackIdentifier() {
+        return packIdentifier;
+    }
+
+    /** Start tracking a pack; stickers are its existing stickers, nextStickerIndex the first unused index. */
+    public void setPack(@NonNull String packIdentifier, @NonNull List<Sticker> stickers, int nextStickerIndex) {
+        this.packIdentifier = packIdentifier;
+        this.stickers.clear();
+        this.stickers.addAll(stickers);
+        this.nextStickerIndex = nextStickerIndex;
+    }
+
+    /** The live list; the screen's adapter shows it and edits it directly. */
+    @NonNull
+    public List<Sticker> getStickers() {
+        return stickers;
+    }
+
+    /** Reserve count consecutive sticker indices and return the first. */
+    public int reserveStickerIndices(int count) {
+        int first = nextStickerIndex;
+        nextStickerIndex += count;
+        return first;
+    }
+
+    public boolean isImporting() {
+        return batch != null;
+    }
+
+    /** Add uris to the pack in the background; results are appended to the list in input order. */
+    public void importStickers(@NonNull PackStorage storage, @NonNull List<Uri> uris, @NonNull List<String> emojis) {
+        if (packIdentifier == null || batch != null) throw new IllegalStateException("No pack or import already running");
+        int firstIndex = reserveStickerIndices(uris.size());
+        batchCompleted = 0;
+        batchTotal = uris.size();
+        batchFailed = 0;
+        batch = storage.addStickerImagesToPack(packIdentifier, firstIndex, uris, emojis, this);
+        if (host != null) host.onImportStarted(0, batchTotal);
+    }
+
+    public void attach(@NonNull Host host) {
+        this.host = host;
+        if (batch != null) host.onImportStarted(batchCompleted, batchTotal);
+    }
+
+    public void detach(@NonNull Host host) {
+        if (this.host == host) this.host = null;
+    }
+
+    @Override
+    public void onProgress(int completed, int total) {
+        batchCompleted = completed;
+        if (host != null) host.onImportProgress(completed, total);
+    }
+
+    @Override
+    public void onStickerImported(int position, @NonNull Sticker sticker) {
+        stickers.add(sticker);
+        if (host != null) host.onStickerAdded(stickers.size() - 1);
+    }
+
+    @Override
+    public void onStickerFailed(int position, @NonNull Uri uri, @NonNull Exception error) {
+        batchFailed++;
+    }
+
+    @Override
+    public void onFinished() {
+        batch = null;
+        if (host != null) host.onImportFinished(batchFailed);
+    }
+
+    @Override
+    protected void onCleared() {
+        if (batch != null) batch.cancel();
+        batch = null;
+        host = null;
+    }
+}
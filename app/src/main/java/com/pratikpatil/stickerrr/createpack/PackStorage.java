@@ -5,9 +5,11 @@ import android.net.Uri;
 
 import androidx.annotation.NonNull;
 
+import com.pratikpatil.stickerrr.stickerapi.BinaryPackManifest;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
 import com.pratikpatil.stickerrr.stickerapi.StickerContentProvider;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
+import com.pratikpatil.stickerrr.stickerpacklist.ThumbnailCache;
 
 import java.io.File;
 import java.io.IOException;
@@ -20,6 +22,9 @@ import java.util.UUID;
  */
 public final class PackStorage {
 
+    /** Most images accepted by one {@link #addStickerImagesToPack} call (a full pack). */
+    public static final int MAX_BATCH_IMPORT = 30;
+
     private static final String DIR_PACKS = "sticker_packs";
     private static final String TRAY_PREFIX = "tray_";
     private static final String TRAY_EXT = ".png";
@@ -72,6 +77,7 @@ public final class PackStorage {
         File packDir = getPackDir(packIdentifier);
         if (!packDir.exists()) return false;
         deleteRecursive(packDir);
+        ThumbnailCache.getInstance(context).invalidatePack(packIdentifier);
         StickerContentProvider.notifyPacksChanged(context);
         return true;
     }
@@ -96,10 +102,33 @@ public final class PackStorage {
         if (!packDir.exists()) packDir.mkdirs();
         String fileName = STICKER_PREFIX + index + STICKER_EXT;
         File outFile = new File(packDir, fileName);
+        boolean overwrite = outFile.exists();
         ImageHelper.saveAsStickerImage(context, imageUri, outFile);
+        // The sidecar's recorded size for this file would be stale.
+        if (overwrite) BinaryPackManifest.delete(packDir);
+        StickerContentProvider.invalidateIndex(context);
+        ThumbnailCache.getInstance(context).invalidate(packIdentifier, fileName);
         return new Sticker(fileName, emojis, accessibilityText);
     }
 
+    /**
+     * Add up to {@value #MAX_BATCH_IMPORT} images at once, saved as sticker_&lt;firstIndex + i&gt;.webp.
+     * Runs in the background on a bounded worker pool; see {@link StickerBatchImport}.
+     * The returned import can be cancelled, e.g. in onDestroy.
+     */
+    @NonNull
+    public StickerBatchImport addStickerImagesToPack(@NonNull String packIdentifier, int firstIndex, @NonNull List<Uri> imageUris,
+                                                     @NonNull List<String> emojis, @NonNull StickerBatchImport.Listener listener) {
+        if (imageUris.size() > MAX_BATCH_IMPORT) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IMPORT + " images per import, got " + imageUris.size());
+        }
+        File packDir = getPackDir(packIdentifier);
+        if (!packDir.exists()) packDir.mkdirs();
+        StickerBatchImport batch = new StickerBatchImport(this, packIdentifier, firstIndex, imageUris, emojis, listener);
+        batch.start();
+        return batch;
+    }
+
     /**
      * Replace an existing sticker image with a new image from URI (same filename, overwrites file).
      */
@@ -107,6 +136,9 @@ public final class PackStorage {
         File packDir = getPackDir(packIdentifier);
         File outFile = new File(packDir, existingFileName);
         ImageHelper.saveAsStickerImage(context, newImageUri, outFile);
+        // contents.json is unchanged, so the sidecar would still look valid with a stale size.
+        BinaryPackManifest.delete(packDir);
+        ThumbnailCache.getInstance(context).invalidate(packIdentifier, existingFileName);
         StickerContentProvider.notifyPacksChanged(context);
     }
 
@@ -114,10 +146,15 @@ public final class PackStorage {
      * Delete a single sticker file from the pack (e.g. when removing a sticker in edit mode).
      */
     public boolean deleteStickerFile(@NonNull String packIdentifier, @NonNull String fileName) {
-        File file = new File(getPackDir(packIdentifier), fileName);
+        File packDir = getPackDir(packIdentifier);
+        File file = new File(packDir, fileName);
         if (file.isFile()) {
             boolean deleted = file.delete();
-            if (deleted) StickerContentProvider.notifyPacksChanged(context);
+            if (deleted) {
+                BinaryPackManifest.delete(packDir);
+                ThumbnailCache.getInstance(context).invalidate(packIdentifier, fileName);
+                StickerContentProvider.notifyPacksChanged(context);
+            }
             return deleted;
         }
         return false;
@@ -132,6 +169,8 @@ public final class PackStorage {
         String fileName = TRAY_PREFIX + packIdentifier + TRAY_EXT;
         File outFile = new File(packDir, fileName);
         ImageHelper.saveAsTrayIcon(context, imageUri, outFile);
+        StickerContentProvider.invalidateIndex(context);
+        ThumbnailCache.getInstance(context).invalidate(packIdentifier, fileName);
         return fileName;
     }
 
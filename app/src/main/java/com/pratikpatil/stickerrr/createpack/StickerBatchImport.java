@@ -0,0 +1,163 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.pratikpatil.stickerrr.stickerapi.Sticker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A running multi-image import started by {@link PackStorage#addStickerImagesToPack}.
+ * Images are decoded and encoded on a shared worker pool sized to the CPU count. A semaphore
+ * sized from the heap limits how many decoded images are in memory at once; the next image is
+ * only submitted once a permit is free. Results are reported to the listener in input order.
+ * <p>
+ * Cancelling stops new images from starting but lets running ones finish their file, so no
+ * half-written sticker is left behind; every file that was written but not reported is deleted.
+ */
+public final class StickerBatchImport {
+
+    /** Callbacks run on the main thread. */
+    public interface Listener {
+        /** Called as each image finishes, in completion order. */
+        void onProgress(int completed, int total);
+
+        /** Called in input order for each image that was added. */
+        void onStickerImported(int position, @NonNull Sticker sticker);
+
+        /** Called in input order for each image that could not be added. */
+        void onStickerFailed(int position, @NonNull Uri uri, @NonNull Exception error);
+
+        /** Called once after every image was reported; not called if the import was cancelled. */
+        void onFinished();
+    }
+
+    /** Worst case per in-flight image: subsampled decode up to 1024x1024, the 512x512 result and encode buffers. */
+    private static final long MEMORY_PER_IMPORT_BYTES = 6L * 1024 * 1024;
+    private static final int MAX_WORKERS = 4;
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1)));
+    /** Feeds one batch at a time to the workers; blocks while the memory budget is used up. */
+    private static final ExecutorService COORDINATOR = Executors.newSingleThreadExecutor();
+
+    private final PackStorage storage;
+    private final String packIdentifier;
+    private final int firstIndex;
+    private final List<Uri> uris;
+    private final List<String> emojis;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Sticker[] results;
+    private final Exception[] errors;
+    /** Main thread only. */
+    private final boolean[] done;
+    private int completed;
+    private int nextToReport;
+    private volatile boolean cancelled;
+    private Future<?> coordinator;
+
+    StickerBatchImport(@NonNull PackStorage storage, @NonNull String packIdentifier, int firstIndex,
+                       @NonNull List<Uri> uris, @NonNull List<String> emojis, @NonNull Listener listener) {
+        this.storage = storage;
+        this.packIdentifier = packIdentifier;
+        this.firstIndex = firstIndex;
+        this.uris = new ArrayList<>(uris);
+        this.emojis = emojis;
+        this.listener = listener;
+        results = new Sticker[uris.size()];
+        errors = new Exception[uris.size()];
+        done = new boolean[uris.size()];
+    }
+
+    void start() {
+        coordinator = COORDINATOR.submit(this::run);
+    }
+
+    /**
+     * Stop submitting images and drop pending callbacks, e.g. when the screen is finishing.
+     * Stickers already written but not yet reported are deleted. Main thread only.
+     */
+    public void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        if (coordinator != null) coordinator.cancel(true);
+        for (int i = nextToReport; i < uris.size(); i++) {
+            if (done[i]) discard(i);
+        }
+    }
+
+    private void run() {
+        int maxInFlight = (int) Math.max(1, Math.min(MAX_WORKERS,
+                Runtime.getRuntime().maxMemory() / 4 / MEMORY_PER_IMPORT_BYTES));
+        Semaphore permits = new Semaphore(maxInFlight);
+        List<Future<?>> tasks = new ArrayList<>(uris.size());
+        try {
+            for (int i = 0; i < uris.size() && !cancelled; i++) {
+                permits.acquire();
+                final int position = i;
+                tasks.add(WORKERS.submit(() -> {
+                    try {
+                        importOne(position);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            // Hold the coordinator until the batch drains so cancel() still reaches running tasks.
+            permits.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            // Tasks that have not started are skipped; running ones finish and are discarded.
+            for (Future<?> task : tasks) task.cancel(false);
+        }
+    }
+
+    private void importOne(int position) {
+        if (cancelled) return;
+        try {
+            results[position] = storage.addStickerImageToPack(packIdentifier, firstIndex + position,
+                    uris.get(position), emojis, "");
+        } catch (IOException | RuntimeException e) {
+            errors[position] = e;
+        }
+        mainHandler.post(() -> onItemDone(position));
+    }
+
+    private void onItemDone(int position) {
+        if (cancelled) {
+            discard(position);
+            return;
+        }
+        done[position] = true;
+        completed++;
+        listener.onProgress(completed, uris.size());
+        while (nextToReport < uris.size() && done[nextToReport]) {
+            int i = nextToReport++;
+            if (results[i] != null) {
+                listener.onStickerImported(i, results[i]);
+            } else {
+                Exception error = errors[i] != null ? errors[i] : new IOException("Could not decode image");
+                listener.onStickerFailed(i, uris.get(i), error);
+            }
+        }
+        if (nextToReport == uris.size()) listener.onFinished();
+    }
+
+    /** Delete the sticker written for position, if any; it was never reported. */
+    private void discard(int position) {
+        Sticker sticker = results[position];
+        if (sticker == null) return;
+        results[position] = null;
+        storage.deleteStickerFile(packIdentifier, sticker.imageFileName);
+    }
+}
@@ -0,0 +1,177 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+
+/**
+ * One caption of a sticker: text, fill color, optional outline, size, rotation and position.
+ * Coordinates and size are in the pixels of the bitmap the layer was placed on; x is the left
+ * edge and y the baseline, and the text rotates about the center of its bounds.
+ * <p>
+ * The text is measured and recorded into a {@link Picture} once, so drawing it again (each frame
+ * of a drag, or at any scale on export) replays the recording without re-measuring. Style is
+ * fixed per instance: use the with* methods for a restyled copy. Position and rotation only move
+ * the recording and can be changed in place.
+ */
+public final class TextLayer {
+
+    /** Outline width as a fraction of the text size. */
+    public static final float DEFAULT_STROKE_WIDTH = 0.08f;
+
+    private final String text;
+    private final int color;
+    private final float size;
+    private final int strokeColor;
+    private final float strokeWidth;
+
+    private float x;
+    private float y;
+    private float rotationDegrees;
+
+    /** Unrotated bounds of the filled text relative to (x, y). */
+    private final Rect bounds = new Rect();
+    /** Where (x, y) lies inside the recording. */
+    private final float originX;
+    private final float originY;
+    private Picture picture;
+
+    /** strokeWidth is a fraction of size; 0 draws no outline. */
+    public TextLayer(@NonNull String text, int color, float size, int strokeColor, float strokeWidth) {
+        this.text = text;
+        this.color = color;
+        this.size = size;
+        this.strokeColor = strokeColor;
+        this.strokeWidth = strokeWidth;
+        fillPaint().getTextBounds(text, 0, text.length(), bounds);
+        float pad = (float) Math.ceil(strokeWidth * size) + 2f;
+        originX = pad - bounds.left;
+        originY = pad - bounds.top;
+    }
+
+    @NonNull
+    public String getText() {
+        return text;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public float getSize() {
+        return size;
+    }
+
+    public int getStrokeColor() {
+        return strokeColor;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    /** Bounds of the unrotated fill relative to (x, y). Shared; do not modify. */
+    @NonNull
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void setRotationDegrees(float degrees) {
+        this.rotationDegrees = degrees;
+    }
+
+    @NonNull
+    public TextLayer withColors(int color, int strokeColor) {
+        return placedLike(new TextLayer(text, color, size, strokeColor, strokeWidth));
+    }
+
+    @NonNull
+    public TextLayer withSize(float size) {
+        return placedLike(new TextLayer(text, color, size, strokeColor, strokeWidth));
+    }
+
+    @NonNull
+    public TextLayer withStroke(int strokeColor, float strokeWidth) {
+        return placedLike(new TextLayer(text, color, size, strokeColor, strokeWidth));
+    }
+
+    /** Same layer with its own recording, e.g. to hand to another thread. */
+    @NonNull
+    public TextLayer copy() {
+        return placedLike(new TextLayer(text, color, size, strokeColor, strokeWidth));
+    }
+
+    /**
+     * Draw the layer with its coordinates multiplied by scale and offset by (dx, dy), i.e. onto
+     * a canvas showing the layer's bitmap at that scale and offset.
+     */
+    public void draw(@NonNull Canvas canvas, float scale, float dx, float dy) {
+        Picture recording = picture();
+        int saveCount = canvas.save();
+        canvas.translate(dx, dy);
+        canvas.scale(scale, scale);
+        canvas.rotate(rotationDegrees, x + bounds.width() / 2f, y - (bounds.top + bounds.bottom) / 2f);
+        canvas.translate(x - originX, y - originY);
+        canvas.drawPicture(recording);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @NonNull
+    private TextLayer placedLike(@NonNull TextLayer layer) {
+        layer.x = x;
+        layer.y = y;
+        layer.rotationDegrees = rotationDegrees;
+        return layer;
+    }
+
+    @NonNull
+    private Picture picture() {
+        if (picture == null) {
+            Picture recording = new Picture();
+            float pad = originX + bounds.left;
+            Canvas canvas = recording.beginRecording(
+                    (int) Math.ceil(bounds.width() + 2 * pad), (int) Math.ceil(bounds.height() + 2 * pad));
+            if (strokeWidth > 0f) {
+                Paint stroke = fillPaint();
+                stroke.setColor(strokeColor);
+                stroke.setStyle(Paint.Style.STROKE);
+                stroke.setStrokeJoin(Paint.Join.ROUND);
+                stroke.setStrokeWidth(strokeWidth * size);
+                canvas.drawText(text, originX, originY, stroke);
+            }
+            canvas.drawText(text, originX, originY, fillPaint());
+            recording.endRecording();
+            picture = recording;
+        }
+        return picture;
+    }
+
+    @NonNull
+    private Paint fillPaint() {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        paint.setTextSize(size);
+        paint.setTextAlign(Paint.Align.LEFT);
+        return paint;
+    }
+}
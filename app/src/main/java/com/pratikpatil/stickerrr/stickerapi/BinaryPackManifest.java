@@ -0,0 +1,223 @@
+package com.pratikpatil.stickerrr.stickerapi;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary sidecar (contents.bin) written next to contents.json so packs can be loaded without
+ * parsing JSON text. Also records each image's size and mtime at write time; the sticker sizes
+ * are served as the provider's sticker_file_size column.
+ * <p>
+ * Layout (big-endian): magic, version, contents.json length and mtime, payload length, CRC32 of
+ * the payload, then the payload of length-prefixed UTF-8 strings and numbers. The sidecar is only
+ * used while contents.json still has the recorded length and mtime, the CRC matches, and the tray
+ * and every sticker image still have their recorded size and mtime, so an image rewritten behind
+ * the app's back never serves a stale size.
+ */
+public final class BinaryPackManifest {
+
+    public static final String FILE_NAME = "contents.bin";
+
+    private static final String TAG = "BinaryPackManifest";
+    private static final int MAGIC = 0x53544b52; // "STKR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 8;
+    private static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+
+    private BinaryPackManifest() {
+    }
+
+    /**
+     * Write the sidecar for a pack whose contents.json was just written to packDir.
+     * Image sizes and mtimes are taken from the files currently in packDir.
+     */
+    public static void write(@NonNull File packDir, @NonNull StickerPack pack, String androidPlayStoreLink, String iosAppStoreLink) throws IOException {
+        File contentsFile = new File(packDir, "contents.json");
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(2048);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeString(payload, androidPlayStoreLink != null ? androidPlayStoreLink : "");
+        writeString(payload, iosAppStoreLink != null ? iosAppStoreLink : "");
+        payload.writeInt(1);
+        writeString(payload, pack.identifier);
+        writeString(payload, pack.name);
+        writeString(payload, pack.publisher);
+        writeString(payload, pack.trayImageFile);
+        writeString(payload, pack.publisherEmail != null ? pack.publisherEmail : "");
+        writeString(payload, pack.publisherWebsite != null ? pack.publisherWebsite : "");
+        writeString(payload, pack.privacyPolicyWebsite != null ? pack.privacyPolicyWebsite : "");
+        writeString(payload, pack.licenseAgreementWebsite != null ? pack.licenseAgreementWebsite : "");
+        writeString(payload, pack.imageDataVersion != null ? pack.imageDataVersion : "1");
+        payload.writeBoolean(pack.avoidCache);
+        payload.writeBoolean(pack.animatedStickerPack);
+        writeFileStat(payload, new File(packDir, pack.trayImageFile));
+        List<Sticker> stickers = pack.getStickers();
+        payload.writeInt(stickers != null ? stickers.size() : 0);
+        if (stickers != null) {
+            for (Sticker s : stickers) {
+                writeString(payload, s.imageFileName);
+                writeString(payload, s.accessibilityText != null ? s.accessibilityText : "");
+                int emojiCount = s.emojis != null ? Math.min(s.emojis.size(), StickerPackValidator.EMOJI_MAX_LIMIT) : 0;
+                payload.writeByte(emojiCount);
+                for (int i = 0; i < emojiCount; i++) {
+                    String e = s.emojis.get(i);
+                    writeString(payload, e != null ? e : "");
+                }
+                writeFileStat(payload, new File(packDir, s.imageFileName));
+            }
+        }
+        payload.flush();
+        byte[] body = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        File tmp = new File(packDir, FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(contentsFile.length());
+            out.writeLong(contentsFile.lastModified());
+            out.writeInt(body.length);
+            out.writeLong(crc.getValue());
+            out.write(body);
+        }
+        if (!tmp.renameTo(new File(packDir, FILE_NAME))) {
+            tmp.delete();
+            throw new IOException("Could not write " + FILE_NAME + " in " + packDir.getAbsolutePath());
+        }
+    }
+
+    /** Remove the sidecar, e.g. when an image changed without contents.json being rewritten. */
+    public static void delete(@NonNull File packDir) {
+        new File(packDir, FILE_NAME).delete();
+    }
+
+    /**
+     * Read packs from the sidecar next to contentsFile.
+     * Returns null when there is no usable sidecar; the caller should parse contents.json.
+     */
+    @Nullable
+    static List<StickerPack> read(@NonNull File contentsFile) {
+        File file = new File(contentsFile.getParentFile(), FILE_NAME);
+        long fileLength = file.length();
+        if (fileLength < HEADER_BYTES || fileLength > HEADER_BYTES + MAX_PAYLOAD_BYTES) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (in.readLong() != contentsFile.length() || in.readLong() != contentsFile.lastModified()) return null;
+            int length = in.readInt();
+            long expectedCrc = in.readLong();
+            if (length != fileLength - HEADER_BYTES) return null;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+            if (crc.getValue() != expectedCrc) return null;
+            return readPayload(new DataInputStream(new ByteArrayInputStream(body)), contentsFile.getParentFile());
+        } catch (IOException | IllegalStateException e) {
+            Log.w(TAG, "Ignoring unusable " + file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /** Null if an image no longer matches its recorded size and mtime. */
+    @Nullable
+    private static List<StickerPack> readPayload(@NonNull DataInputStream in, @NonNull File packDir) throws IOException, IllegalStateException {
+        String androidPlayStoreLink = readString(in);
+        String iosAppStoreLink = readString(in);
+        int packCount = in.readInt();
+        if (packCount > in.available()) {
+            throw new IOException("corrupt pack count " + packCount);
+        }
+        if (packCount <= 0) {
+            throw new IllegalStateException("sticker pack list cannot be empty");
+        }
+        List<StickerPack> packs = new ArrayList<>(packCount);
+        for (int p = 0; p < packCount; p++) {
+            String identifier = readString(in);
+            String name = readString(in);
+            String publisher = readString(in);
+            String trayImageFile = readString(in);
+            String publisherEmail = readString(in);
+            String publisherWebsite = readString(in);
+            String privacyPolicyWebsite = readString(in);
+            String licenseAgreementWebsite = readString(in);
+            String imageDataVersion = readString(in);
+            boolean avoidCache = in.readBoolean();
+            boolean animatedStickerPack = in.readBoolean();
+            if (readMatchingSize(in, new File(packDir, trayImageFile)) < 0) return null;
+            int stickerCount = in.readInt();
+            if (stickerCount < 0 || stickerCount > in.available()) {
+                throw new IOException("corrupt sticker count " + stickerCount);
+            }
+            List<Sticker> stickers = new ArrayList<>(stickerCount);
+            for (int i = 0; i < stickerCount; i++) {
+                String imageFile = readString(in);
+                String accessibilityText = readString(in);
+                int emojiCount = in.readUnsignedByte();
+                List<String> emojis = new ArrayList<>(emojiCount);
+                for (int j = 0; j < emojiCount; j++) {
+                    String e = readString(in);
+                    if (!e.isEmpty()) emojis.add(e);
+                }
+                long size = readMatchingSize(in, new File(packDir, imageFile));
+                if (size < 0) return null;
+                Sticker sticker = ContentFileParser.newSticker(imageFile, emojis, accessibilityText);
+                if (size > 0) sticker.setSize(size);
+                stickers.add(sticker);
+            }
+            StickerPack pack = ContentFileParser.newStickerPack(identifier, name, publisher, trayImageFile,
+                    publisherEmail, publisherWebsite, privacyPolicyWebsite, licenseAgreementWebsite,
+                    imageDataVersion, avoidCache, animatedStickerPack, stickers);
+            pack.setAndroidPlayStoreLink(androidPlayStoreLink);
+            pack.setIosAppStoreLink(iosAppStoreLink);
+            packs.add(pack);
+        }
+        return packs;
+    }
+
+    private static void writeFileStat(@NonNull DataOutputStream out, @NonNull File file) throws IOException {
+        out.writeLong(file.length());
+        out.writeLong(file.lastModified());
+    }
+
+    /**
+     * Read a size and mtime written by {@link #writeFileStat}; returns the size if file still has
+     * both, otherwise -1.
+     */
+    private static long readMatchingSize(@NonNull DataInputStream in, @NonNull File file) throws IOException {
+        long size = in.readLong();
+        long mtime = in.readLong();
+        return size == file.length() && mtime == file.lastModified() ? size : -1;
+    }
+
+    private static void writeString(@NonNull DataOutputStream out, @NonNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,13 +1,13 @@
 package com.pratikpatil.stickerrr.stickerapi;
 
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
 
 import androidx.annotation.NonNull;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -59,65 +59,179 @@ public final class ContentFileParser {
         if (!contentsFile.exists() || !contentsFile.isFile()) {
             throw new IllegalStateException("contents.json file does not exist: " + contentsFile.getAbsolutePath());
         }
+        List<StickerPack> cached = BinaryPackManifest.read(contentsFile);
+        if (cached != null) {
+            return cached;
+        }
         try (FileInputStream fis = new FileInputStream(contentsFile)) {
             return readStickerPacks(fis);
         }
     }
 
+    /**
+     * Single-pass parse: models are built straight from the token stream, without holding
+     * the file as a String or as a JSONObject tree.
+     * <p>
+     * Behaves like the earlier org.json parser: the reader is lenient as JSONTokener was, a later
+     * duplicate key replaces an earlier one, JSON null reads as the string "null", and validation
+     * errors are deferred so the same error is reported first. Syntax and type errors are reported
+     * as "Invalid contents.json".
+     */
     @NonNull
     private static List<StickerPack> readStickerPacks(@NonNull InputStream contentsInputStream) throws IOException, IllegalStateException {
-        String json = readStreamToString(contentsInputStream);
-        try {
-            JSONObject root = new JSONObject(json);
-            String androidPlayStoreLink = root.optString(KEY_ANDROID_PLAY_STORE_LINK, "");
-            String iosAppStoreLink = root.optString(KEY_IOS_APP_STORE_LINK, "");
-
-            if (!root.has(KEY_STICKER_PACKS)) {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(contentsInputStream, "UTF-8"))) {
+            reader.setLenient(true);
+            String androidPlayStoreLink = "";
+            String iosAppStoreLink = "";
+            List<StickerPack> stickerPackList = null;
+            IllegalStateException packError = null;
+            begin(reader, JsonToken.BEGIN_OBJECT);
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                switch (key) {
+                    case KEY_ANDROID_PLAY_STORE_LINK:
+                        androidPlayStoreLink = readString(reader, "");
+                        break;
+                    case KEY_IOS_APP_STORE_LINK:
+                        iosAppStoreLink = readString(reader, "");
+                        break;
+                    case KEY_STICKER_PACKS:
+                        stickerPackList = new ArrayList<>();
+                        packError = readStickerPackArray(reader, stickerPackList);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (stickerPackList == null) {
                 throw new IllegalStateException("unknown field in json: missing sticker_packs");
             }
-            JSONArray packsArray = root.getJSONArray(KEY_STICKER_PACKS);
-            List<StickerPack> stickerPackList = new ArrayList<>();
-            for (int i = 0; i < packsArray.length(); i++) {
-                StickerPack pack = readStickerPack(packsArray.getJSONObject(i));
+            if (packError != null) {
+                throw packError;
+            }
+            for (StickerPack pack : stickerPackList) {
                 pack.setAndroidPlayStoreLink(androidPlayStoreLink);
                 pack.setIosAppStoreLink(iosAppStoreLink);
-                stickerPackList.add(pack);
             }
             if (stickerPackList.isEmpty()) {
                 throw new IllegalStateException("sticker pack list cannot be empty");
             }
             return stickerPackList;
-        } catch (JSONException e) {
+        } catch (MalformedJsonException | EOFException e) {
             throw new IllegalStateException("Invalid contents.json: " + e.getMessage(), e);
         }
     }
 
-    private static String readStreamToString(InputStream is) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        try (InputStreamReader reader = new InputStreamReader(is, "UTF-8")) {
-            char[] buf = new char[4096];
-            int n;
-            while ((n = reader.read(buf)) != -1) {
-                sb.append(buf, 0, n);
+    /** Adds the valid packs to out and returns the first validation error, or null. */
+    private static IllegalStateException readStickerPackArray(@NonNull JsonReader reader, @NonNull List<StickerPack> out) throws IOException {
+        IllegalStateException firstError = null;
+        begin(reader, JsonToken.BEGIN_ARRAY);
+        while (reader.hasNext()) {
+            try {
+                out.add(readStickerPack(reader));
+            } catch (IllegalStateException e) {
+                if (firstError == null) firstError = e;
             }
         }
-        return sb.toString();
+        reader.endArray();
+        return firstError;
     }
 
     @NonNull
-    private static StickerPack readStickerPack(JSONObject obj) throws JSONException, IllegalStateException {
-        String identifier = obj.optString(KEY_IDENTIFIER, null);
-        String name = obj.optString(KEY_NAME, null);
-        String publisher = obj.optString(KEY_PUBLISHER, null);
-        String trayImageFile = obj.optString(KEY_TRAY_IMAGE_FILE, null);
-        String publisherEmail = obj.optString(KEY_PUBLISHER_EMAIL, "");
-        String publisherWebsite = obj.optString(KEY_PUBLISHER_WEBSITE, "");
-        String privacyPolicyWebsite = obj.optString(KEY_PRIVACY_POLICY_WEBSITE, "");
-        String licenseAgreementWebsite = obj.optString(KEY_LICENSE_AGREEMENT_WEBSITE, "");
-        String imageDataVersion = obj.optString(KEY_IMAGE_DATA_VERSION, "1");
-        boolean avoidCache = obj.optBoolean(KEY_AVOID_CACHE, false);
-        boolean animatedStickerPack = obj.optBoolean(KEY_ANIMATED_STICKER_PACK, false);
+    private static StickerPack readStickerPack(@NonNull JsonReader reader) throws IOException, IllegalStateException {
+        String identifier = null;
+        String name = null;
+        String publisher = null;
+        String trayImageFile = null;
+        String publisherEmail = "";
+        String publisherWebsite = "";
+        String privacyPolicyWebsite = "";
+        String licenseAgreementWebsite = "";
+        String imageDataVersion = "1";
+        boolean avoidCache = false;
+        boolean animatedStickerPack = false;
+        List<Sticker> stickerList = null;
+        IllegalStateException stickerError = null;
 
+        begin(reader, JsonToken.BEGIN_OBJECT);
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (key) {
+                case KEY_IDENTIFIER:
+                    identifier = readString(reader, null);
+                    break;
+                case KEY_NAME:
+                    name = readString(reader, null);
+                    break;
+                case KEY_PUBLISHER:
+                    publisher = readString(reader, null);
+                    break;
+                case KEY_TRAY_IMAGE_FILE:
+                    trayImageFile = readString(reader, null);
+                    break;
+                case KEY_PUBLISHER_EMAIL:
+                    publisherEmail = readString(reader, "");
+                    break;
+                case KEY_PUBLISHER_WEBSITE:
+                    publisherWebsite = readString(reader, "");
+                    break;
+                case KEY_PRIVACY_POLICY_WEBSITE:
+                    privacyPolicyWebsite = readString(reader, "");
+                    break;
+                case KEY_LICENSE_AGREEMENT_WEBSITE:
+                    licenseAgreementWebsite = readString(reader, "");
+                    break;
+                case KEY_IMAGE_DATA_VERSION:
+                    imageDataVersion = readString(reader, "1");
+                    break;
+                case KEY_AVOID_CACHE:
+                    avoidCache = readBoolean(reader);
+                    break;
+                case KEY_ANIMATED_STICKER_PACK:
+                    animatedStickerPack = readBoolean(reader);
+                    break;
+                case KEY_STICKERS:
+                    stickerList = new ArrayList<>();
+                    stickerError = readStickers(reader, stickerList);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (stickerList == null) {
+            return newStickerPack(identifier, name, publisher, trayImageFile,
+                    publisherEmail, publisherWebsite, privacyPolicyWebsite, licenseAgreementWebsite,
+                    imageDataVersion, avoidCache, animatedStickerPack, null,
+                    new IllegalStateException("Invalid contents.json: No value for " + KEY_STICKERS));
+        }
+        return newStickerPack(identifier, name, publisher, trayImageFile,
+                publisherEmail, publisherWebsite, privacyPolicyWebsite, licenseAgreementWebsite,
+                imageDataVersion, avoidCache, animatedStickerPack, stickerList, stickerError);
+    }
+
+    /**
+     * Validates pack fields and builds the model. Shared by the JSON parser and
+     * {@link BinaryPackManifest} so both sources enforce the same rules.
+     */
+    @NonNull
+    static StickerPack newStickerPack(String identifier, String name, String publisher, String trayImageFile,
+                                      String publisherEmail, String publisherWebsite, String privacyPolicyWebsite,
+                                      String licenseAgreementWebsite, String imageDataVersion, boolean avoidCache,
+                                      boolean animatedStickerPack, List<Sticker> stickerList) throws IllegalStateException {
+        return newStickerPack(identifier, name, publisher, trayImageFile, publisherEmail, publisherWebsite,
+                privacyPolicyWebsite, licenseAgreementWebsite, imageDataVersion, avoidCache, animatedStickerPack,
+                stickerList, null);
+    }
+
+    /** stickerError, if any, is thrown once the pack's own fields passed, as the old parser did. */
+    @NonNull
+    private static StickerPack newStickerPack(String identifier, String name, String publisher, String trayImageFile,
+                                              String publisherEmail, String publisherWebsite, String privacyPolicyWebsite,
+                                              String licenseAgreementWebsite, String imageDataVersion, boolean avoidCache,
+                                              boolean animatedStickerPack, List<Sticker> stickerList,
+                                              IllegalStateException stickerError) throws IllegalStateException {
         if (TextUtils.isEmpty(identifier)) {
             throw new IllegalStateException("identifier cannot be empty");
         }
@@ -136,9 +250,9 @@ public final class ContentFileParser {
         if (TextUtils.isEmpty(imageDataVersion)) {
             throw new IllegalStateException("image_data_version should not be empty");
         }
-
-        JSONArray stickersArray = obj.getJSONArray(KEY_STICKERS);
-        List<Sticker> stickerList = readStickers(stickersArray);
+        if (stickerError != null) {
+            throw stickerError;
+        }
         if (stickerList == null || stickerList.isEmpty()) {
             throw new IllegalStateException("sticker list is empty");
         }
@@ -150,35 +264,120 @@ public final class ContentFileParser {
         return pack;
     }
 
-    @NonNull
-    private static List<Sticker> readStickers(JSONArray arr) throws JSONException, IllegalStateException {
-        List<Sticker> list = new ArrayList<>();
-        for (int i = 0; i < arr.length(); i++) {
-            JSONObject o = arr.getJSONObject(i);
-            String imageFile = o.optString(FIELD_STICKER_IMAGE_FILE, null);
-            String accessibilityText = o.optString(FIELD_STICKER_ACCESSIBILITY_TEXT, null);
+    /** Adds the valid stickers to out and returns the first validation error, or null. */
+    private static IllegalStateException readStickers(@NonNull JsonReader reader, @NonNull List<Sticker> out) throws IOException {
+        IllegalStateException firstError = null;
+        begin(reader, JsonToken.BEGIN_ARRAY);
+        while (reader.hasNext()) {
+            String imageFile = null;
+            String accessibilityText = null;
             List<String> emojis = new ArrayList<>();
-            if (o.has(FIELD_STICKER_EMOJIS)) {
-                JSONArray emojiArr = o.getJSONArray(FIELD_STICKER_EMOJIS);
-                for (int j = 0; j < emojiArr.length() && j < StickerPackValidator.EMOJI_MAX_LIMIT; j++) {
-                    String e = emojiArr.optString(j, null);
-                    if (!TextUtils.isEmpty(e)) {
-                        emojis.add(e);
-                    }
+            begin(reader, JsonToken.BEGIN_OBJECT);
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                switch (key) {
+                    case FIELD_STICKER_IMAGE_FILE:
+                        imageFile = readString(reader, null);
+                        break;
+                    case FIELD_STICKER_ACCESSIBILITY_TEXT:
+                        accessibilityText = readString(reader, null);
+                        break;
+                    case FIELD_STICKER_EMOJIS:
+                        emojis.clear();
+                        readEmojis(reader, emojis);
+                        break;
+                    default:
+                        reader.skipValue();
                 }
             }
-            if (imageFile == null || TextUtils.isEmpty(imageFile)) {
-                throw new IllegalStateException("sticker image_file cannot be empty");
-            }
-            if (!imageFile.endsWith(".webp")) {
-                throw new IllegalStateException("image file for stickers should be webp files, image file is: " + imageFile);
+            reader.endObject();
+            try {
+                out.add(newSticker(imageFile, emojis, accessibilityText));
+            } catch (IllegalStateException e) {
+                if (firstError == null) firstError = e;
             }
-            if (imageFile.contains("..") || imageFile.contains("/")) {
-                throw new IllegalStateException("the file name should not contain .. or / to prevent directory traversal, image file is:" + imageFile);
+        }
+        reader.endArray();
+        return firstError;
+    }
+
+    /** Validates the sticker file name and builds the model. */
+    @NonNull
+    static Sticker newSticker(String imageFile, List<String> emojis, String accessibilityText) throws IllegalStateException {
+        if (imageFile == null || TextUtils.isEmpty(imageFile)) {
+            throw new IllegalStateException("sticker image_file cannot be empty");
+        }
+        if (!imageFile.endsWith(".webp")) {
+            throw new IllegalStateException("image file for stickers should be webp files, image file is: " + imageFile);
+        }
+        if (imageFile.contains("..") || imageFile.contains("/")) {
+            throw new IllegalStateException("the file name should not contain .. or / to prevent directory traversal, image file is:" + imageFile);
+        }
+        return new Sticker(imageFile, emojis, accessibilityText);
+    }
+
+    /** Reads at most EMOJI_MAX_LIMIT entries; the rest of the array is skipped. */
+    private static void readEmojis(@NonNull JsonReader reader, @NonNull List<String> out) throws IOException {
+        begin(reader, JsonToken.BEGIN_ARRAY);
+        int j = 0;
+        while (reader.hasNext()) {
+            if (j < StickerPackValidator.EMOJI_MAX_LIMIT) {
+                String e = readString(reader, null);
+                if (!TextUtils.isEmpty(e)) {
+                    out.add(e);
+                }
+            } else {
+                reader.skipValue();
             }
-            list.add(new Sticker(imageFile, emojis, accessibilityText));
+            j++;
+        }
+        reader.endArray();
+    }
+
+    /** Begin an object or array, reporting a different value as invalid JSON rather than a reader state error. */
+    private static void begin(@NonNull JsonReader reader, @NonNull JsonToken expected) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != expected) {
+            throw new MalformedJsonException("expected " + expected + " but was " + token);
+        }
+        if (expected == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+        } else {
+            reader.beginArray();
+        }
+    }
+
+    /**
+     * Strings, numbers and booleans are read as text, and null as "null" like org.json's optString;
+     * an object or array yields the fallback.
+     */
+    private static String readString(@NonNull JsonReader reader, String fallback) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return "null";
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return fallback;
+    }
+
+    /** Accepts a JSON boolean or the strings "true"/"false"; anything else is false. */
+    private static boolean readBoolean(@NonNull JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        if (token == JsonToken.STRING) {
+            return "true".equalsIgnoreCase(reader.nextString());
         }
-        return list;
+        reader.skipValue();
+        return false;
     }
 
     private ContentFileParser() {
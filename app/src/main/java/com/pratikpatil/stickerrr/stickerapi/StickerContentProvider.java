@@ -1,6 +1,7 @@
 package com.pratikpatil.stickerrr.stickerapi;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderClient;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -10,16 +11,15 @@ import android.database.MatrixCursor;
 import android.net.Uri;
 import android.os.ParcelFileDescriptor;
 import android.text.TextUtils;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.pratikpatil.stickerrr.BuildConfig;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +48,8 @@ public class StickerContentProvider extends ContentProvider {
     public static final String STICKER_FILE_NAME_IN_QUERY = "sticker_file_name";
     public static final String STICKER_FILE_EMOJI_IN_QUERY = "sticker_emoji";
     public static final String STICKER_FILE_ACCESSIBILITY_TEXT_IN_QUERY = "sticker_accessibility_text";
+    /** Extra column for this app's own loader; WhatsApp ignores it. */
+    public static final String STICKER_FILE_SIZE_IN_QUERY = "sticker_file_size";
 
     private static final String METADATA = "metadata";
     static final String STICKERS = "stickers";
@@ -60,7 +62,7 @@ public class StickerContentProvider extends ContentProvider {
     private static final int STICKER_PACK_TRAY_ICON_CODE = 5;
 
     private static UriMatcher matcher;
-    private List<StickerPack> stickerPackList;
+    private StickerPackIndex packIndex;
 
     public static final Uri AUTHORITY_URI = new Uri.Builder()
             .scheme(ContentResolver.SCHEME_CONTENT)
@@ -82,40 +84,49 @@ public class StickerContentProvider extends ContentProvider {
         matcher.addURI(authority, STICKERS + "/*", STICKERS_CODE);
         // stickers_asset/<identifier>/<fileName> - match dynamically in openAssetFile/query
         matcher.addURI(authority, STICKERS_ASSET + "/*/*", STICKERS_ASSET_CODE);
+        packIndex = new StickerPackIndex(new File(ctx.getFilesDir(), "sticker_packs"));
         return true;
     }
 
-    private synchronized List<StickerPack> getStickerPackList() {
-        Context ctx = Objects.requireNonNull(getContext());
-        File packsDir = new File(ctx.getFilesDir(), "sticker_packs");
-        List<StickerPack> list = new ArrayList<>();
-        if (packsDir.exists() && packsDir.isDirectory()) {
-            File[] dirs = packsDir.listFiles(File::isDirectory);
-            if (dirs != null) {
-                for (File dir : dirs) {
-                    File contentsFile = new File(dir, "contents.json");
-                    if (contentsFile.exists()) {
-                        try {
-                            List<StickerPack> parsed = ContentFileParser.parseStickerPacks(contentsFile);
-                            list.addAll(parsed);
-                        } catch (IOException | IllegalStateException e) {
-                            Log.e("StickerContentProvider", "Failed to parse " + contentsFile.getAbsolutePath(), e);
-                        }
-                    }
-                }
-            }
-        }
-        stickerPackList = list;
-        return stickerPackList;
+    @Override
+    public void shutdown() {
+        if (packIndex != null) packIndex.close();
+        super.shutdown();
+    }
+
+    @VisibleForTesting
+    StickerPackIndex getPackIndex() {
+        return packIndex;
+    }
+
+    @NonNull
+    private List<StickerPack> getStickerPackList() {
+        return packIndex.getPacks();
     }
 
     /** Call this after adding/removing packs so UI and WhatsApp can refresh. */
     public static void notifyPacksChanged(Context context) {
         if (context != null) {
+            invalidateIndex(context);
             context.getContentResolver().notifyChange(AUTHORITY_URI, null);
         }
     }
 
+    /**
+     * Call this after writing any file under sticker_packs/. The provider runs in this process,
+     * so its index is marked stale right away instead of waiting for FileObserver events.
+     */
+    public static void invalidateIndex(@NonNull Context context) {
+        try (ContentProviderClient client = context.getContentResolver()
+                .acquireContentProviderClient(BuildConfig.CONTENT_PROVIDER_AUTHORITY)) {
+            ContentProvider provider = client != null ? client.getLocalContentProvider() : null;
+            if (provider instanceof StickerContentProvider) {
+                StickerPackIndex index = ((StickerContentProvider) provider).packIndex;
+                if (index != null) index.invalidate();
+            }
+        }
+    }
+
     @Override
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection, String selection, String[] selectionArgs, String sortOrder) {
         int code = matcher.match(uri);
@@ -141,15 +152,15 @@ public class StickerContentProvider extends ContentProvider {
         String identifier = pathSegments.get(1);
         String fileName = pathSegments.get(2);
         if (TextUtils.isEmpty(identifier) || TextUtils.isEmpty(fileName)) return null;
-        File packDir = new File(Objects.requireNonNull(getContext()).getFilesDir(), "sticker_packs" + File.separator + identifier);
-        File file = new File(packDir, fileName);
-        if (!file.exists() || !file.isFile()) throw new FileNotFoundException(uri.toString());
-        try {
-            ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
-            return new android.content.res.AssetFileDescriptor(pfd, 0, file.length());
-        } catch (IOException e) {
-            throw new FileNotFoundException(e.getMessage());
+        if (identifier.contains("..") || identifier.contains("/") || fileName.contains("..") || fileName.contains("/")) {
+            throw new FileNotFoundException(uri.toString());
         }
+        // Length comes from the index's per-pack table: no exists()/isFile()/length() per request.
+        // The descriptor is opened fresh each time; a shared fd would also share its read offset.
+        StickerPackIndex.AssetInfo asset = packIndex.getAsset(identifier, fileName);
+        if (asset == null) throw new FileNotFoundException(uri.toString());
+        ParcelFileDescriptor pfd = ParcelFileDescriptor.open(asset.file, ParcelFileDescriptor.MODE_READ_ONLY);
+        return new android.content.res.AssetFileDescriptor(pfd, 0, asset.length);
     }
 
     @Override
@@ -182,11 +193,9 @@ public class StickerContentProvider extends ContentProvider {
     }
 
     private Cursor getCursorForSingleStickerPack(@NonNull Uri uri) {
-        String identifier = uri.getLastPathSegment();
-        for (StickerPack pack : getStickerPackList()) {
-            if (identifier != null && identifier.equals(pack.identifier)) {
-                return getStickerPackInfo(uri, Collections.singletonList(pack));
-            }
+        StickerPack pack = packIndex.getPack(uri.getLastPathSegment());
+        if (pack != null) {
+            return getStickerPackInfo(uri, Collections.singletonList(pack));
         }
         return getStickerPackInfo(uri, new ArrayList<>());
     }
@@ -232,23 +241,29 @@ public class StickerContentProvider extends ContentProvider {
     @NonNull
     private Cursor getStickersForAStickerPack(@NonNull Uri uri) {
         String identifier = uri.getLastPathSegment();
-        MatrixCursor cursor = new MatrixCursor(new String[]{STICKER_FILE_NAME_IN_QUERY, STICKER_FILE_EMOJI_IN_QUERY, STICKER_FILE_ACCESSIBILITY_TEXT_IN_QUERY});
-        for (StickerPack pack : getStickerPackList()) {
-            if (identifier != null && identifier.equals(pack.identifier) && pack.getStickers() != null) {
-                for (Sticker sticker : pack.getStickers()) {
-                    cursor.addRow(new Object[]{
-                            sticker.imageFileName,
-                            TextUtils.join(",", sticker.emojis != null ? sticker.emojis : Collections.<String>emptyList()),
-                            sticker.accessibilityText != null ? sticker.accessibilityText : ""
-                    });
-                }
-                break;
+        MatrixCursor cursor = new MatrixCursor(new String[]{STICKER_FILE_NAME_IN_QUERY, STICKER_FILE_EMOJI_IN_QUERY, STICKER_FILE_ACCESSIBILITY_TEXT_IN_QUERY, STICKER_FILE_SIZE_IN_QUERY});
+        StickerPack pack = packIndex.getPack(identifier);
+        if (pack != null && pack.getStickers() != null) {
+            for (Sticker sticker : pack.getStickers()) {
+                cursor.addRow(new Object[]{
+                        sticker.imageFileName,
+                        TextUtils.join(",", sticker.emojis != null ? sticker.emojis : Collections.<String>emptyList()),
+                        sticker.accessibilityText != null ? sticker.accessibilityText : "",
+                        getStickerFileSize(identifier, sticker)
+                });
             }
         }
         cursor.setNotificationUri(Objects.requireNonNull(getContext()).getContentResolver(), uri);
         return cursor;
     }
 
+    /** From the binary sidecar when the pack was loaded from it, otherwise one stat per file. */
+    private long getStickerFileSize(@NonNull String identifier, @NonNull Sticker sticker) {
+        if (sticker.size > 0) return sticker.size;
+        StickerPackIndex.AssetInfo asset = packIndex.getAsset(identifier, sticker.imageFileName);
+        return asset != null ? asset.length : 0L;
+    }
+
     @Override
     public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
         throw new UnsupportedOperationException("Not supported");
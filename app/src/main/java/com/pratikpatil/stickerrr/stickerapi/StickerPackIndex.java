@@ -0,0 +1,318 @@
+package com.pratikpatil.stickerrr.stickerapi;
+
+import android.os.FileObserver;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of the packs under getFilesDir()/sticker_packs, keyed by identifier.
+ * FileObservers on sticker_packs/ and on each pack directory mark single packs dirty;
+ * only dirty packs are re-checked, and only a changed contents.json is re-parsed.
+ * <p>
+ * FileObserver events arrive asynchronously, so this app's own writes also call
+ * {@link #invalidate()} before they return; a query right after a write never sees the old state.
+ * <p>
+ * Also keeps a per-directory table of image file lengths for openAssetFile. Each file is
+ * stat-ed at most once until its pack directory is marked dirty again or the index is invalidated.
+ */
+final class StickerPackIndex {
+
+    private static final String TAG = "StickerPackIndex";
+    private static final String CONTENTS_FILE = "contents.json";
+
+    private static final int ROOT_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+    private static final int PACK_DIR_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.CREATE
+            | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    private final File packsDir;
+    /** Parsed contents.json per pack directory name, in directory name order. */
+    private final Map<String, DirEntry> dirEntries = new TreeMap<>();
+    private final Map<String, FileObserver> dirObservers = new HashMap<>();
+    private final Set<String> dirtyDirs = new HashSet<>();
+    /** Asset lengths per pack directory name, cleared whenever that directory is re-checked. */
+    private final Map<String, Map<String, AssetInfo>> assetTables = new HashMap<>();
+    private FileObserver rootObserver;
+    private boolean fullScanNeeded = true;
+    private Map<String, StickerPack> packsById = Collections.emptyMap();
+    private List<StickerPack> packList = Collections.emptyList();
+    private int parseCount;
+
+    StickerPackIndex(@NonNull File packsDir) {
+        this.packsDir = packsDir;
+    }
+
+    @NonNull
+    synchronized List<StickerPack> getPacks() {
+        refresh();
+        return packList;
+    }
+
+    @Nullable
+    synchronized StickerPack getPack(@Nullable String identifier) {
+        if (identifier == null) return null;
+        refresh();
+        return packsById.get(identifier);
+    }
+
+    /**
+     * Look up an image in sticker_packs/&lt;dirName&gt;/. Returns null if the file does not exist.
+     * The result is cached until the next change in that directory.
+     */
+    @Nullable
+    synchronized AssetInfo getAsset(@NonNull String dirName, @NonNull String fileName) {
+        refresh();
+        Map<String, AssetInfo> table = assetTables.get(dirName);
+        if (table == null) {
+            table = new HashMap<>();
+            assetTables.put(dirName, table);
+        } else if (table.containsKey(fileName)) {
+            return table.get(fileName);
+        }
+        File file = new File(packsDir, dirName + File.separator + fileName);
+        AssetInfo info = null;
+        try {
+            // One stat call gives both the type and the length.
+            StructStat st = Os.stat(file.getPath());
+            if (OsConstants.S_ISREG(st.st_mode)) {
+                info = new AssetInfo(file, st.st_size);
+            }
+        } catch (ErrnoException ignored) {
+        }
+        // Only cache while a watch on the directory will clear the entry on change.
+        if (dirObservers.containsKey(dirName)) {
+            table.put(fileName, info);
+        }
+        return info;
+    }
+
+    /** Number of contents.json files parsed since this index was created. */
+    synchronized int getParseCount() {
+        return parseCount;
+    }
+
+    /**
+     * Forget cached file lengths and re-check every pack directory on the next query. Only a
+     * contents.json whose length or mtime changed is parsed again.
+     */
+    synchronized void invalidate() {
+        fullScanNeeded = true;
+        assetTables.clear();
+    }
+
+    /** Stop all file watching; the next query falls back to a full scan. */
+    synchronized void close() {
+        stopWatchingAll();
+        fullScanNeeded = true;
+    }
+
+    private synchronized void markDirty(@NonNull String dirName) {
+        dirtyDirs.add(dirName);
+    }
+
+    private synchronized void markAllDirty() {
+        // sticker_packs/ itself was deleted or moved; watches on it are gone.
+        stopWatchingAll();
+        fullScanNeeded = true;
+    }
+
+    private void refresh() {
+        if (rootObserver == null && packsDir.isDirectory()) {
+            // Start watching before scanning so no change between the two is lost.
+            rootObserver = new RootObserver(packsDir.getAbsolutePath());
+            rootObserver.startWatching();
+            fullScanNeeded = true;
+        }
+        boolean changed;
+        if (rootObserver == null || fullScanNeeded) {
+            dirtyDirs.clear();
+            changed = fullScan();
+            // Without a root watch (sticker_packs/ missing) keep scanning on every query.
+            fullScanNeeded = rootObserver == null;
+        } else if (!dirtyDirs.isEmpty()) {
+            changed = false;
+            for (String dirName : dirtyDirs) {
+                changed |= refreshDir(dirName);
+            }
+            dirtyDirs.clear();
+        } else {
+            return;
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    private boolean fullScan() {
+        File[] dirs = packsDir.isDirectory() ? packsDir.listFiles(File::isDirectory) : null;
+        Set<String> seen = new HashSet<>();
+        boolean changed = false;
+        if (dirs != null) {
+            for (File dir : dirs) {
+                seen.add(dir.getName());
+                changed |= refreshDir(dir.getName());
+            }
+        }
+        Set<String> known = new HashSet<>(dirEntries.keySet());
+        known.addAll(dirObservers.keySet());
+        for (String dirName : known) {
+            if (!seen.contains(dirName)) {
+                changed |= removeDir(dirName);
+            }
+        }
+        return changed;
+    }
+
+    /** Re-check one pack directory; returns true if its parsed packs changed. */
+    private boolean refreshDir(@NonNull String dirName) {
+        assetTables.remove(dirName);
+        File dir = new File(packsDir, dirName);
+        if (!dir.isDirectory()) {
+            return removeDir(dirName);
+        }
+        if (rootObserver != null && !dirObservers.containsKey(dirName)) {
+            FileObserver observer = new PackDirObserver(dir.getAbsolutePath(), dirName);
+            observer.startWatching();
+            dirObservers.put(dirName, observer);
+        }
+        File contentsFile = new File(dir, CONTENTS_FILE);
+        long lastModified = contentsFile.lastModified();
+        long length = contentsFile.length();
+        // Sticker sizes come from the sidecar; it is deleted when an image changes on its own.
+        long sidecarModified = new File(dir, BinaryPackManifest.FILE_NAME).lastModified();
+        DirEntry entry = dirEntries.get(dirName);
+        if (entry != null && entry.lastModified == lastModified && entry.length == length
+                && entry.sidecarModified == sidecarModified) {
+            return false;
+        }
+        if (lastModified == 0L) {
+            return dirEntries.remove(dirName) != null;
+        }
+        dirEntries.put(dirName, new DirEntry(lastModified, length, sidecarModified, parse(contentsFile)));
+        return true;
+    }
+
+    private boolean removeDir(@NonNull String dirName) {
+        FileObserver observer = dirObservers.remove(dirName);
+        if (observer != null) observer.stopWatching();
+        assetTables.remove(dirName);
+        return dirEntries.remove(dirName) != null;
+    }
+
+    private void stopWatchingAll() {
+        if (rootObserver != null) {
+            rootObserver.stopWatching();
+            rootObserver = null;
+        }
+        for (FileObserver observer : dirObservers.values()) {
+            observer.stopWatching();
+        }
+        dirObservers.clear();
+        assetTables.clear();
+    }
+
+    @NonNull
+    private List<StickerPack> parse(@NonNull File contentsFile) {
+        parseCount++;
+        try {
+            return ContentFileParser.parseStickerPacks(contentsFile);
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Failed to parse " + contentsFile.getAbsolutePath(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void rebuild() {
+        Map<String, StickerPack> byId = new LinkedHashMap<>();
+        List<StickerPack> list = new ArrayList<>();
+        for (DirEntry entry : dirEntries.values()) {
+            for (StickerPack pack : entry.packs) {
+                // Keep duplicates in the list so StickerPackLoader can still report them.
+                list.add(pack);
+                if (!byId.containsKey(pack.identifier)) byId.put(pack.identifier, pack);
+            }
+        }
+        packsById = byId;
+        packList = Collections.unmodifiableList(list);
+    }
+
+    private static final class DirEntry {
+        final long lastModified;
+        final long length;
+        final long sidecarModified;
+        final List<StickerPack> packs;
+
+        DirEntry(long lastModified, long length, long sidecarModified, List<StickerPack> packs) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.sidecarModified = sidecarModified;
+            this.packs = packs;
+        }
+    }
+
+    static final class AssetInfo {
+        final File file;
+        final long length;
+
+        AssetInfo(File file, long length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    /** Watches sticker_packs/ for pack directories being created, deleted or renamed. */
+    private final class RootObserver extends FileObserver {
+        // FileObserver(File, int) is API 29+.
+        @SuppressWarnings("deprecation")
+        RootObserver(String path) {
+            super(path, ROOT_EVENTS);
+        }
+
+        @Override
+        public void onEvent(int event, @Nullable String path) {
+            int type = event & FileObserver.ALL_EVENTS;
+            if ((type & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF)) != 0) {
+                markAllDirty();
+            } else if (path != null) {
+                markDirty(path);
+            }
+        }
+    }
+
+    /** Watches a single pack directory for file writes, deletes and renames. */
+    private final class PackDirObserver extends FileObserver {
+        private final String dirName;
+
+        // FileObserver(File, int) is API 29+.
+        @SuppressWarnings("deprecation")
+        PackDirObserver(String path, String dirName) {
+            super(path, PACK_DIR_EVENTS);
+            this.dirName = dirName;
+        }
+
+        @Override
+        public void onEvent(int event, @Nullable String path) {
+            markDirty(dirName);
+        }
+    }
+}
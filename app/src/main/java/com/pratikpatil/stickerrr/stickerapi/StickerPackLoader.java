@@ -4,6 +4,7 @@ import com.pratikpatil.stickerrr.BuildConfig;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.database.Cursor;
 import android.net.Uri;
 import android.text.TextUtils;
@@ -73,16 +74,18 @@ public final class StickerPackLoader {
         return list;
     }
 
+    /**
+     * Sizes come from the provider's size column, or from the asset descriptor length when the
+     * column is missing. No image bytes are read.
+     */
     @NonNull
     private static List<Sticker> getStickersForPack(Context context, StickerPack stickerPack) {
         List<Sticker> stickers = fetchFromContentProviderForStickers(stickerPack.identifier, context.getContentResolver());
         for (Sticker sticker : stickers) {
-            try {
-                byte[] bytes = fetchStickerAsset(stickerPack.identifier, sticker.imageFileName, context.getContentResolver());
-                if (bytes.length > 0) {
-                    sticker.setSize(bytes.length);
-                }
-            } catch (IOException | IllegalArgumentException ignored) {
+            if (sticker.size > 0) continue;
+            long size = fetchStickerAssetSize(stickerPack.identifier, sticker.imageFileName, context.getContentResolver());
+            if (size > 0) {
+                sticker.setSize(size);
             }
         }
         return stickers;
@@ -117,10 +120,11 @@ public final class StickerPackLoader {
     @NonNull
     private static List<Sticker> fetchFromContentProviderForStickers(String identifier, ContentResolver contentResolver) {
         Uri uri = getStickerListUri(identifier);
-        String[] projection = {StickerContentProvider.STICKER_FILE_NAME_IN_QUERY, StickerContentProvider.STICKER_FILE_EMOJI_IN_QUERY, StickerContentProvider.STICKER_FILE_ACCESSIBILITY_TEXT_IN_QUERY};
+        String[] projection = {StickerContentProvider.STICKER_FILE_NAME_IN_QUERY, StickerContentProvider.STICKER_FILE_EMOJI_IN_QUERY, StickerContentProvider.STICKER_FILE_ACCESSIBILITY_TEXT_IN_QUERY, StickerContentProvider.STICKER_FILE_SIZE_IN_QUERY};
         Cursor cursor = contentResolver.query(uri, projection, null, null, null);
         List<Sticker> stickers = new ArrayList<>();
         if (cursor != null && cursor.getCount() > 0) {
+            int sizeColumn = cursor.getColumnIndex(StickerContentProvider.STICKER_FILE_SIZE_IN_QUERY);
             cursor.moveToFirst();
             do {
                 String name = cursor.getString(cursor.getColumnIndexOrThrow(StickerContentProvider.STICKER_FILE_NAME_IN_QUERY));
@@ -130,7 +134,11 @@ public final class StickerPackLoader {
                 if (!TextUtils.isEmpty(emojisConcatenated)) {
                     emojis = Arrays.asList(emojisConcatenated.split(","));
                 }
-                stickers.add(new Sticker(name, emojis, accessibilityText));
+                Sticker sticker = new Sticker(name, emojis, accessibilityText);
+                if (sizeColumn >= 0 && !cursor.isNull(sizeColumn)) {
+                    sticker.setSize(cursor.getLong(sizeColumn));
+                }
+                stickers.add(sticker);
             } while (cursor.moveToNext());
             cursor.close();
         }
@@ -152,6 +160,17 @@ public final class StickerPackLoader {
         }
     }
 
+    /** Size of a sticker asset from its descriptor, without reading it; 0 if unknown. */
+    public static long fetchStickerAssetSize(@NonNull String identifier, @NonNull String name, ContentResolver contentResolver) {
+        try (AssetFileDescriptor afd = contentResolver.openAssetFileDescriptor(getStickerAssetUri(identifier, name), "r")) {
+            if (afd == null) return 0L;
+            long length = afd.getLength();
+            return length != AssetFileDescriptor.UNKNOWN_LENGTH ? length : 0L;
+        } catch (IOException | IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+
     public static Uri getStickerListUri(String identifier) {
         return new Uri.Builder()
                 .scheme(ContentResolver.SCHEME_CONTENT)
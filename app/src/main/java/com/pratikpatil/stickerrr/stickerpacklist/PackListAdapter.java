@@ -1,33 +1,26 @@
 package com.pratikpatil.stickerrr.stickerpacklist;
 
-import android.content.ContentResolver;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.pratikpatil.stickerrr.BuildConfig;
 import com.pratikpatil.stickerrr.R;
 import com.pratikpatil.stickerrr.stickerapi.StickerPack;
-import com.pratikpatil.stickerrr.stickerapi.StickerPackLoader;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 public class PackListAdapter extends RecyclerView.Adapter<PackListAdapter.ViewHolder> {
 
+    private static final int TRAY_THUMBNAIL_PX = 96;
+
     private final List<StickerPack> packs = new ArrayList<>();
-    private final ContentResolver contentResolver;
     private final AddToWhatsAppListener addToWhatsAppListener;
 
     public interface AddToWhatsAppListener {
@@ -37,8 +30,7 @@ public class PackListAdapter extends RecyclerView.Adapter<PackListAdapter.ViewHo
         void onDeletePack(StickerPack pack);
     }
 
-    public PackListAdapter(ContentResolver contentResolver, AddToWhatsAppListener addToWhatsAppListener) {
-        this.contentResolver = contentResolver;
+    public PackListAdapter(AddToWhatsAppListener addToWhatsAppListener) {
         this.addToWhatsAppListener = addToWhatsAppListener;
     }
 
@@ -59,16 +51,8 @@ public class PackListAdapter extends RecyclerView.Adapter<PackListAdapter.ViewHo
         StickerPack pack = packs.get(position);
         holder.txtPackName.setText(pack.name);
         holder.txtPublisher.setText(pack.publisher);
-        Uri trayUri = StickerPackLoader.getStickerAssetUri(pack.identifier, pack.trayImageFile);
-        try (InputStream is = contentResolver.openInputStream(trayUri)) {
-            if (is != null) {
-                Bitmap b = BitmapFactory.decodeStream(is);
-                if (b != null) {
-                    holder.imgTray.setImageBitmap(b);
-                }
-            }
-        } catch (Exception ignored) {
-        }
+        ThumbnailCache.getInstance(holder.itemView.getContext())
+                .load(holder.imgTray, pack.identifier, pack.trayImageFile, TRAY_THUMBNAIL_PX);
         holder.btnAddToWhatsApp.setOnClickListener(v -> {
             if (addToWhatsAppListener != null) addToWhatsAppListener.onAddToWhatsApp(pack);
         });
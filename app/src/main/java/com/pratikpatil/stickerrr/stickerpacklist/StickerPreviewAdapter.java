@@ -1,9 +1,5 @@
 package com.pratikpatil.stickerrr.stickerpacklist;
 
-import android.content.ContentResolver;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,21 +10,17 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.pratikpatil.stickerrr.R;
 import com.pratikpatil.stickerrr.stickerapi.Sticker;
-import com.pratikpatil.stickerrr.stickerapi.StickerPackLoader;
 
-import java.io.InputStream;
 import java.util.List;
 
 public class StickerPreviewAdapter extends RecyclerView.Adapter<StickerPreviewAdapter.ViewHolder> {
 
     private final String packIdentifier;
     private final List<Sticker> stickers;
-    private final ContentResolver contentResolver;
 
-    public StickerPreviewAdapter(String packIdentifier, List<Sticker> stickers, ContentResolver contentResolver) {
+    public StickerPreviewAdapter(String packIdentifier, List<Sticker> stickers) {
         this.packIdentifier = packIdentifier;
         this.stickers = stickers != null ? stickers : java.util.Collections.emptyList();
-        this.contentResolver = contentResolver;
     }
 
     @Override
@@ -37,19 +29,22 @@ public class StickerPreviewAdapter extends RecyclerView.Adapter<StickerPreviewAd
         return new ViewHolder(v);
     }
 
+    /**
+     * Thumbnails are decoded off the main thread at the cell size (about 100dp) via the shared
+     * ThumbnailCache. A re-bind or recycle cancels the previous load and drops its result.
+     */
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         Sticker sticker = stickers.get(position);
-        Uri uri = StickerPackLoader.getStickerAssetUri(packIdentifier, sticker.imageFileName);
-        try (InputStream is = contentResolver.openInputStream(uri)) {
-            if (is != null) {
-                Bitmap b = BitmapFactory.decodeStream(is);
-                if (b != null) {
-                    holder.imgSticker.setImageBitmap(b);
-                }
-            }
-        } catch (Exception ignored) {
-        }
+        int targetPx = holder.imgSticker.getLayoutParams().width;
+        ThumbnailCache.getInstance(holder.itemView.getContext())
+                .load(holder.imgSticker, packIdentifier, sticker.imageFileName, targetPx);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        ThumbnailCache.getInstance(holder.itemView.getContext()).cancel(holder.imgSticker);
+        holder.imgSticker.setImageDrawable(null);
     }
 
     @Override
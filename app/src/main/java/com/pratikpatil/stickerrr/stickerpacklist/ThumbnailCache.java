@@ -0,0 +1,187 @@
+package com.pratikpatil.stickerrr.stickerpacklist;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.pratikpatil.stickerrr.R;
+import com.pratikpatil.stickerrr.createpack.ImageHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * App-wide sticker and tray thumbnail cache shared by the list, detail and edit screens.
+ * Two tiers: an in-memory LRU bounded by bitmap bytes, and small pre-scaled PNGs under
+ * getCacheDir()/thumbnails. Keys are pack id, file name, file mtime and thumbnail size, so a
+ * rewritten image never matches an old entry; {@link #invalidate} also drops old entries eagerly.
+ * Key components are URL-encoded, which always escapes the separator, so keys (and disk file
+ * names) are unambiguous and a pack's prefix never matches another pack.
+ */
+public final class ThumbnailCache {
+
+    private static final String DIR_PACKS = "sticker_packs";
+    private static final String DIR_THUMBNAILS = "thumbnails";
+    /** URLEncoder escapes '~', so it never occurs inside an encoded component. */
+    private static final String SEP = "~";
+    private static final int MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_DISK_ENTRIES = 400;
+
+    private static ThumbnailCache instance;
+
+    private final File packsDir;
+    private final File diskDir;
+    private final ContentResolver contentResolver;
+    private final LruCache<String, Bitmap> memory;
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /** Pending loads per view; only touched on the main thread. */
+    private final Map<ImageView, Future<?>> pending = new WeakHashMap<>();
+
+    private ThumbnailCache(@NonNull Context context) {
+        packsDir = new File(context.getFilesDir(), DIR_PACKS);
+        diskDir = new File(context.getCacheDir(), DIR_THUMBNAILS);
+        contentResolver = context.getContentResolver();
+        int maxBytes = (int) Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 8);
+        memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull String key, @NonNull Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    @NonNull
+    public static synchronized ThumbnailCache getInstance(@NonNull Context context) {
+        if (instance == null) instance = new ThumbnailCache(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Show a thumbnail of sticker_packs/&lt;packIdentifier&gt;/&lt;fileName&gt; in target, at most targetPx
+     * on its longer side. Memory hits are set immediately; otherwise the view is cleared and the
+     * bitmap is set later unless the view was bound to something else in the meantime.
+     */
+    public void load(@NonNull ImageView target, @NonNull String packIdentifier, @NonNull String fileName, int targetPx) {
+        cancel(target);
+        File source = new File(new File(packsDir, packIdentifier), fileName);
+        String key = encode(packIdentifier) + SEP + encode(fileName) + SEP + source.lastModified() + SEP + targetPx;
+        target.setTag(R.id.thumbnail_cache_key, key);
+        Bitmap cached = memory.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageDrawable(null);
+        Future<?> future = decodeExecutor.submit(() -> {
+            Bitmap bitmap = loadFromDiskOrSource(key, source, targetPx);
+            if (bitmap == null || Thread.currentThread().isInterrupted()) return;
+            memory.put(key, bitmap);
+            mainHandler.post(() -> {
+                if (key.equals(target.getTag(R.id.thumbnail_cache_key))) {
+                    target.setImageBitmap(bitmap);
+                    pending.remove(target);
+                }
+            });
+        });
+        pending.put(target, future);
+    }
+
+    /** Cancel a pending load for target, e.g. when its ViewHolder is recycled. */
+    public void cancel(@NonNull ImageView target) {
+        Future<?> future = pending.remove(target);
+        if (future != null) future.cancel(true);
+        target.setTag(R.id.thumbnail_cache_key, null);
+    }
+
+    /** Drop all thumbnails of one image, after it was rewritten or deleted. */
+    public void invalidate(@NonNull String packIdentifier, @NonNull String fileName) {
+        removeByPrefix(encode(packIdentifier) + SEP + encode(fileName) + SEP);
+    }
+
+    /** Drop all thumbnails of a pack, e.g. after it was deleted. */
+    public void invalidatePack(@NonNull String packIdentifier) {
+        removeByPrefix(encode(packIdentifier) + SEP);
+    }
+
+    @NonNull
+    private static String encode(@NonNull String component) {
+        try {
+            return URLEncoder.encode(component, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void removeByPrefix(@NonNull String prefix) {
+        for (String key : memory.snapshot().keySet()) {
+            if (key.startsWith(prefix)) memory.remove(key);
+        }
+        decodeExecutor.execute(() -> {
+            File[] files = diskDir.listFiles((dir, name) -> name.startsWith(prefix));
+            if (files == null) return;
+            for (File f : files) f.delete();
+        });
+    }
+
+    @Nullable
+    private Bitmap loadFromDiskOrSource(@NonNull String key, @NonNull File source, int targetPx) {
+        File diskFile = new File(diskDir, key + ".png");
+        if (diskFile.isFile()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(diskFile.getPath());
+            if (bitmap != null) return bitmap;
+            diskFile.delete();
+        }
+        Bitmap bitmap;
+        try {
+            bitmap = ImageHelper.decodeThumbnail(contentResolver, Uri.fromFile(source), targetPx);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        if (bitmap != null) writeToDisk(diskFile, bitmap);
+        return bitmap;
+    }
+
+    private void writeToDisk(@NonNull File diskFile, @NonNull Bitmap bitmap) {
+        if (!diskDir.isDirectory() && !diskDir.mkdirs()) return;
+        File tmp = new File(diskDir, diskFile.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, fos);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(diskFile)) {
+            tmp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -3,70 +3,151 @@ package com.pratikpatil.stickerrr.view;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.pratikpatil.stickerrr.createpack.BitmapPool;
+import com.pratikpatil.stickerrr.createpack.TextLayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * Displays a bitmap with an overlay text that can be dragged.
- * Position and size are in bitmap coordinates. Use setTextSize() for resize (e.g. from SeekBar).
+ * Displays a bitmap with text layers that can be selected and dragged.
+ * Position and size are in bitmap coordinates. The style setters (color, size, rotation, outline)
+ * apply to the selected layer and to layers added after it.
+ * <p>
+ * When the bitmap is larger than the view it is drawn from a proxy copy scaled once to the view's
+ * size, so each frame of a drag is a plain blit regardless of the bitmap's resolution. The proxy
+ * is only for display; the caller renders the final image from {@link #getLayers()}.
+ * <p>
+ * Drawing and dragging do not allocate: each {@link TextLayer} keeps its measured bounds and a
+ * recorded picture, which are only rebuilt when its text or style changes.
  */
 public class ImageWithTextView extends View {
 
+    /** Frame timing while a drag is in progress, for measuring dropped frames. Called on the UI thread. */
+    public interface FrameTimeListener {
+        /**
+         * drawNanos is the time spent in onDraw; sinceLastFrameNanos the time since the previous
+         * frame of the same drag, or 0 for its first frame.
+         */
+        void onDragFrame(long drawNanos, long sinceLastFrameNanos);
+    }
+
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(@Nullable TextLayer selected);
+    }
+
+    /** Extra touch slop around a layer's bounds, in bitmap pixels. */
+    private static final float HIT_SLOP = 20f;
+
     private Bitmap bitmap;
-    private String text = "";
+    /** Bottom to top. */
+    private final List<TextLayer> layers = new ArrayList<>();
+    private int selected = -1;
+    // Style for the selected layer and new layers.
     private int textColor = 0xFFFFFFFF;
-    private float textX;  // left edge, bitmap coords
-    private float textY;  // baseline, bitmap coords
     private float textSize = 48f;  // pixels in bitmap space
     private float textRotation = 0f;  // degrees
+    private boolean textStroke;
 
     private float scale = 1f;
     private float offsetX;
     private float offsetY;
+    /** bitmap scaled to exactly bitmap size * scale, or null while scale >= 1. Pooled. */
+    private Bitmap proxy;
     private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
-    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Rect textBounds = new Rect();
+    /** Filtered SRC copy, so a pooled proxy does not need clearing first. */
+    private final Paint proxyPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF bitmapRect = new RectF();
 
     private boolean dragging;
     private float lastTouchBx;
     private float lastTouchBy;
 
+    @Nullable
+    private FrameTimeListener frameTimeListener;
+    @Nullable
+    private OnSelectionChangedListener selectionListener;
+    private long lastDragFrameNanos;
+
     public ImageWithTextView(Context context) {
         super(context);
+        init();
     }
 
     public ImageWithTextView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
+        init();
     }
 
     public ImageWithTextView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        proxyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+    public void setFrameTimeListener(@Nullable FrameTimeListener listener) {
+        this.frameTimeListener = listener;
+    }
+
+    public void setOnSelectionChangedListener(@Nullable OnSelectionChangedListener listener) {
+        this.selectionListener = listener;
     }
 
     public void setBitmap(Bitmap bitmap) {
+        if (this.bitmap != bitmap) releaseProxy();
         this.bitmap = bitmap;
-        if (bitmap != null && text != null && !text.isEmpty()) {
-            centerTextInitially();
-        }
+        updateScaleAndOffset();
         invalidate();
     }
 
-    public void setText(String text) {
-        this.text = text != null ? text : "";
-        if (bitmap != null && !this.text.isEmpty()) {
-            centerTextInitially();
-        }
+    /** Add a layer with the current style, centered on the bitmap, and select it. */
+    public void addText(String text) {
+        if (bitmap == null || text == null || text.isEmpty()) return;
+        TextLayer layer = new TextLayer(text, textColor, textSize, strokeColorFor(textColor),
+                textStroke ? TextLayer.DEFAULT_STROKE_WIDTH : 0f);
+        Rect bounds = layer.getBounds();
+        layer.setPosition((bitmap.getWidth() - bounds.width()) / 2f,
+                bitmap.getHeight() / 2f - (bounds.top + bounds.bottom) / 2f);
+        layer.setRotationDegrees(textRotation);
+        layers.add(layer);
+        select(layers.size() - 1);
         invalidate();
     }
 
+    /** The layers, bottom to top. Positions are in bitmap coordinates. */
+    @NonNull
+    public List<TextLayer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    @Nullable
+    public TextLayer getSelectedLayer() {
+        return selected >= 0 ? layers.get(selected) : null;
+    }
+
     public void setTextColor(int textColor) {
         this.textColor = textColor;
+        TextLayer layer = getSelectedLayer();
+        if (layer != null) {
+            layers.set(selected, layer.withColors(textColor, strokeColorFor(textColor)));
+        }
         invalidate();
     }
 
@@ -77,6 +158,8 @@ public class ImageWithTextView extends View {
     /** Set text size in bitmap pixels (used for resize). */
     public void setTextSizePx(float sizePx) {
         this.textSize = Math.max(12f, Math.min(200f, sizePx));
+        TextLayer layer = getSelectedLayer();
+        if (layer != null) layers.set(selected, layer.withSize(textSize));
         invalidate();
     }
 
@@ -88,6 +171,8 @@ public class ImageWithTextView extends View {
     public void setTextRotation(float degrees) {
         this.textRotation = degrees % 360f;
         if (this.textRotation < 0) this.textRotation += 360f;
+        TextLayer layer = getSelectedLayer();
+        if (layer != null) layer.setRotationDegrees(textRotation);
         invalidate();
     }
 
@@ -95,18 +180,37 @@ public class ImageWithTextView extends View {
         return textRotation;
     }
 
-    public float getTextX() { return textX; }
-    public float getTextY() { return textY; }
-    public String getText() { return text; }
+    /** Outline the text in black, or white for dark colors. */
+    public void setTextStroke(boolean stroke) {
+        this.textStroke = stroke;
+        TextLayer layer = getSelectedLayer();
+        if (layer != null && (layer.getStrokeWidth() > 0f) != stroke) {
+            layers.set(selected, layer.withStroke(strokeColorFor(layer.getColor()),
+                    stroke ? TextLayer.DEFAULT_STROKE_WIDTH : 0f));
+        }
+        invalidate();
+    }
+
+    public boolean isTextStroke() {
+        return textStroke;
+    }
+
+    private static int strokeColorFor(int fill) {
+        return Color.luminance(fill) < 0.3f ? Color.WHITE : Color.BLACK;
+    }
 
-    private void centerTextInitially() {
-        if (bitmap == null || text.isEmpty()) return;
-        textPaint.setTextSize(textSize);
-        textPaint.getTextBounds(text, 0, text.length(), textBounds);
-        float w = bitmap.getWidth();
-        float h = bitmap.getHeight();
-        textX = (w - textBounds.width()) / 2f;
-        textY = h / 2f - (textBounds.top + textBounds.bottom) / 2f;
+    /** Select layer i and take over its style so the controls show it. */
+    private void select(int i) {
+        if (selected == i) return;
+        selected = i;
+        TextLayer layer = getSelectedLayer();
+        if (layer != null) {
+            textColor = layer.getColor();
+            textSize = layer.getSize();
+            textRotation = layer.getRotationDegrees();
+            textStroke = layer.getStrokeWidth() > 0f;
+        }
+        if (selectionListener != null) selectionListener.onSelectionChanged(layer);
     }
 
     @Override
@@ -115,6 +219,18 @@ public class ImageWithTextView extends View {
         updateScaleAndOffset();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateScaleAndOffset();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseProxy();
+    }
+
     private void updateScaleAndOffset() {
         if (bitmap == null || getWidth() <= 0 || getHeight() <= 0) return;
         int vw = getWidth();
@@ -124,76 +240,97 @@ public class ImageWithTextView extends View {
         scale = Math.min((float) vw / bw, (float) vh / bh);
         offsetX = (vw - bw * scale) / 2f;
         offsetY = (vh - bh * scale) / 2f;
+        bitmapRect.set(offsetX, offsetY, offsetX + bw * scale, offsetY + bh * scale);
+        updateProxy();
+    }
+
+    /** (Re)build the proxy when the target size changed; drawn 1:1 so it must match exactly. */
+    private void updateProxy() {
+        if (scale >= 1f) {
+            releaseProxy();
+            return;
+        }
+        int pw = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int ph = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        if (proxy != null && proxy.getWidth() == pw && proxy.getHeight() == ph) return;
+        releaseProxy();
+        proxy = BitmapPool.getInstance().getDirty(pw, ph, Bitmap.Config.ARGB_8888);
+        new Canvas(proxy).drawBitmap(bitmap, null, new Rect(0, 0, pw, ph), proxyPaint);
+    }
+
+    private void releaseProxy() {
+        if (proxy == null) return;
+        BitmapPool.getInstance().put(proxy);
+        proxy = null;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         if (bitmap == null) return;
-        updateScaleAndOffset();
-        RectF dst = new RectF(offsetX, offsetY, offsetX + bitmap.getWidth() * scale, offsetY + bitmap.getHeight() * scale);
-        canvas.drawBitmap(bitmap, null, dst, bitmapPaint);
-
-        if (text.isEmpty()) return;
-        textPaint.setColor(textColor);
-        textPaint.setTextSize(textSize * scale);
-        textPaint.getTextBounds(text, 0, text.length(), textBounds);
-        float vx = offsetX + textX * scale;
-        float vy = offsetY + textY * scale;
-        float pivotX = vx + textBounds.width() / 2f;
-        float pivotY = vy - (textBounds.top + textBounds.bottom) / 2f;
-        canvas.save();
-        canvas.rotate(textRotation, pivotX, pivotY);
-        canvas.drawText(text, vx, vy, textPaint);
-        canvas.restore();
-    }
-
-    private void viewToBitmap(float vx, float vy, float[] outBxBy) {
-        outBxBy[0] = (vx - offsetX) / scale;
-        outBxBy[1] = (vy - offsetY) / scale;
-    }
-
-    private boolean isInsideText(float bx, float by) {
-        if (text.isEmpty()) return false;
-        textPaint.setTextSize(textSize);
-        textPaint.getTextBounds(text, 0, text.length(), textBounds);
-        float left = textX;
-        float right = textX + textBounds.width();
-        float top = textY + textBounds.top;
-        float bottom = textY + textBounds.bottom;
-        return bx >= left - 20 && bx <= right + 20 && by >= top - 20 && by <= bottom + 20;
+        long start = dragging && frameTimeListener != null ? System.nanoTime() : 0L;
+        if (proxy != null) {
+            canvas.drawBitmap(proxy, offsetX, offsetY, bitmapPaint);
+        } else {
+            canvas.drawBitmap(bitmap, null, bitmapRect, bitmapPaint);
+        }
+
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).draw(canvas, scale, offsetX, offsetY);
+        }
+
+        if (start != 0L) {
+            long end = System.nanoTime();
+            frameTimeListener.onDragFrame(end - start, lastDragFrameNanos != 0L ? start - lastDragFrameNanos : 0L);
+            lastDragFrameNanos = start;
+        }
+    }
+
+    /** Topmost layer whose unrotated bounds (plus slop) contain the point, or -1. */
+    private int layerAt(float bx, float by) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            TextLayer layer = layers.get(i);
+            Rect bounds = layer.getBounds();
+            float left = layer.getX();
+            float right = layer.getX() + bounds.width();
+            float top = layer.getY() + bounds.top;
+            float bottom = layer.getY() + bounds.bottom;
+            if (bx >= left - HIT_SLOP && bx <= right + HIT_SLOP && by >= top - HIT_SLOP && by <= bottom + HIT_SLOP) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (bitmap == null || text.isEmpty()) return false;
-        float[] b = new float[2];
-        viewToBitmap(event.getX(), event.getY(), b);
-        float bx = b[0];
-        float by = b[1];
+        if (bitmap == null || layers.isEmpty()) return false;
+        float bx = (event.getX() - offsetX) / scale;
+        float by = (event.getY() - offsetY) / scale;
 
         switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
-                if (isInsideText(bx, by)) {
+                int hit = layerAt(bx, by);
+                if (hit >= 0) {
+                    select(hit);
                     dragging = true;
+                    lastDragFrameNanos = 0L;
                     lastTouchBx = bx;
                     lastTouchBy = by;
+                    invalidate();
                     return true;
                 }
                 return false;
             case MotionEvent.ACTION_MOVE:
                 if (dragging) {
-                    float dx = bx - lastTouchBx;
-                    float dy = by - lastTouchBy;
-                    textX += dx;
-                    textY += dy;
-                    textPaint.setTextSize(textSize);
-                    textPaint.getTextBounds(text, 0, text.length(), textBounds);
+                    TextLayer layer = layers.get(selected);
+                    Rect bounds = layer.getBounds();
+                    float textX = layer.getX() + bx - lastTouchBx;
+                    float textY = layer.getY() + by - lastTouchBy;
                     float minX = 0;
-                    float maxX = bitmap.getWidth() - textBounds.width();
-                    float minY = -textBounds.top;
-                    float maxY = bitmap.getHeight() - textBounds.bottom;
-                    textX = Math.max(minX, Math.min(maxX, textX));
-                    textY = Math.max(minY, Math.min(maxY, textY));
+                    float maxX = bitmap.getWidth() - bounds.width();
+                    float minY = -bounds.top;
+                    float maxY = bitmap.getHeight() - bounds.bottom;
+                    layer.setPosition(Math.max(minX, Math.min(maxX, textX)), Math.max(minY, Math.min(maxY, textY)));
                     lastTouchBx = bx;
                     lastTouchBy = by;
                     invalidate();
@@ -0,0 +1,83 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * {@link AlphaFeather#boxBlur} against a direct evaluation of the same two clamped passes.
+ */
+public class AlphaFeatherTest {
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(20);
+        int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {2, 3}, {8, 8}, {31, 17}};
+        int[] radii = {0, 1, 2, 3, 8, 40};
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                byte[] alpha = new byte[size[0] * size[1]];
+                random.nextBytes(alpha);
+                assertBlur(alpha, size[0], size[1], radius);
+            }
+        }
+    }
+
+    @Test
+    public void radiusZeroLeavesAlphaUnchanged() {
+        byte[] alpha = new byte[12 * 7];
+        new Random(0).nextBytes(alpha);
+        byte[] blurred = alpha.clone();
+        AlphaFeather.boxBlur(blurred, new byte[blurred.length], 12, 7, 0);
+        assertArrayEquals(alpha, blurred);
+    }
+
+    @Test
+    public void radiusBeyondImageMatchesBruteForce() {
+        // A hard edge, with the radius at and past both dimensions.
+        int w = 6;
+        int h = 4;
+        byte[] alpha = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = w / 2; x < w; x++) alpha[y * w + x] = (byte) 0xff;
+        }
+        for (int radius : new int[]{h, w, w + 1, 3 * w}) {
+            assertBlur(alpha.clone(), w, h, radius);
+        }
+    }
+
+    private static void assertBlur(byte[] alpha, int w, int h, int radius) {
+        byte[] expected = bruteForce(alpha, w, h, radius);
+        byte[] actual = alpha.clone();
+        AlphaFeather.boxBlur(actual, new byte[actual.length], w, h, radius);
+        assertArrayEquals(w + "x" + h + " r=" + radius, expected, actual);
+    }
+
+    /** Horizontal then vertical box average, each truncated, with indices clamped to the image. */
+    private static byte[] bruteForce(byte[] alpha, int w, int h, int radius) {
+        int window = 2 * radius + 1;
+        int[] horizontal = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int sum = 0;
+                for (int k = -radius; k <= radius; k++) sum += alpha[y * w + clamp(x + k, w)] & 0xff;
+                horizontal[y * w + x] = sum / window;
+            }
+        }
+        byte[] out = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int sum = 0;
+                for (int k = -radius; k <= radius; k++) sum += horizontal[clamp(y + k, h) * w + x];
+                out[y * w + x] = (byte) (sum / window);
+            }
+        }
+        return out;
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : (i >= n ? n - 1 : i);
+    }
+}
@@ -0,0 +1,45 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Reused bitmaps must come back in the same state as new ones. */
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest {
+
+    private BitmapPool pool;
+
+    @Before
+    public void setUp() {
+        pool = BitmapPool.getInstance();
+        pool.clear();
+    }
+
+    @Test
+    public void opaqueBitmapIsReturnedWithAlpha() {
+        Bitmap opaque = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+        opaque.setHasAlpha(false);
+        pool.put(opaque);
+
+        Bitmap reused = pool.getDirty(32, 32, Bitmap.Config.ARGB_8888);
+        assertSame(opaque, reused);
+        assertTrue(reused.hasAlpha());
+        assertTrue(reused.isPremultiplied());
+    }
+
+    @Test
+    public void clearedBitmapHasAlpha() {
+        Bitmap opaque = Bitmap.createBitmap(16, 8, Bitmap.Config.ARGB_8888);
+        opaque.setHasAlpha(false);
+        pool.put(opaque);
+
+        assertTrue(pool.get(16, 8, Bitmap.Config.ARGB_8888).hasAlpha());
+    }
+}
@@ -0,0 +1,110 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * {@link BorderFloodFill#fill} against a plain breadth-first search from every border pixel.
+ */
+public class BorderFloodFillTest {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int TOLERANCE = 15;
+
+    @Test
+    public void matchesReferenceOnRandomImages() {
+        Random random = new Random(19);
+        int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {2, 2}, {3, 5}, {16, 16}, {37, 23}, {64, 48}};
+        for (int[] size : sizes) {
+            for (int density = 10; density <= 90; density += 20) {
+                int[] pixels = randomImage(random, size[0], size[1], density);
+                assertFill(pixels, size[0], size[1]);
+            }
+        }
+    }
+
+    @Test
+    public void matchesReferenceOnSpiral() {
+        // A one-pixel corridor winding inward exercises runs that are entered from both rows.
+        int w = 21;
+        int h = 21;
+        int[] pixels = new int[w * h];
+        Arrays.fill(pixels, WHITE);
+        int left = 1, top = 1, right = w - 2, bottom = h - 2;
+        while (left <= right && top <= bottom) {
+            for (int x = left; x <= right; x++) pixels[top * w + x] = 0xFF000000;
+            for (int y = top; y <= bottom; y++) pixels[y * w + right] = 0xFF000000;
+            left += 2;
+            top += 2;
+            right -= 2;
+            bottom -= 2;
+        }
+        assertFill(pixels, w, h);
+    }
+
+    private static int[] randomImage(Random random, int w, int h, int backgroundPercent) {
+        int[] pixels = new int[w * h];
+        for (int i = 0; i < pixels.length; i++) {
+            int roll = random.nextInt(100);
+            if (roll < backgroundPercent) {
+                // Near white, transparent, or just outside the tolerance.
+                int kind = random.nextInt(3);
+                if (kind == 0) {
+                    int v = 255 - random.nextInt(TOLERANCE + 1);
+                    pixels[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+                } else if (kind == 1) {
+                    pixels[i] = random.nextInt(0x01000000);
+                } else {
+                    pixels[i] = 0xFF000000 | ((255 - TOLERANCE - 1) << 16) | 0xFFFF;
+                }
+            } else {
+                pixels[i] = 0xFF000000 | (random.nextInt(0x01000000) & 0x7F7F7F);
+            }
+        }
+        return pixels;
+    }
+
+    private static void assertFill(int[] pixels, int w, int h) {
+        byte[] expected = referenceFill(pixels, w, h);
+        byte[] actual = BorderFloodFill.fill(pixels, w, h, WHITE, TOLERANCE);
+        assertArrayEquals(w + "x" + h, expected, actual);
+    }
+
+    private static byte[] referenceFill(int[] pixels, int w, int h) {
+        byte[] mask = new byte[w * h];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (x == 0 || y == 0 || x == w - 1 || y == h - 1) visit(pixels, mask, queue, y * w + x);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            int x = i % w;
+            int y = i / w;
+            if (x > 0) visit(pixels, mask, queue, i - 1);
+            if (x < w - 1) visit(pixels, mask, queue, i + 1);
+            if (y > 0) visit(pixels, mask, queue, i - w);
+            if (y < h - 1) visit(pixels, mask, queue, i + w);
+        }
+        return mask;
+    }
+
+    private static void visit(int[] pixels, byte[] mask, ArrayDeque<Integer> queue, int i) {
+        if (mask[i] != 0 || !isBackground(pixels[i])) return;
+        mask[i] = 1;
+        queue.add(i);
+    }
+
+    private static boolean isBackground(int p) {
+        if ((p >>> 24) == 0) return true;
+        return 255 - ((p >> 16) & 0xff) <= TOLERANCE
+                && 255 - ((p >> 8) & 0xff) <= TOLERANCE
+                && 255 - (p & 0xff) <= TOLERANCE;
+    }
+}
@@ -0,0 +1,118 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Undo/redo once the byte budget is exceeded: evicted steps stay applied in the base, and
+ * undo, redo and new pushes keep the rebuilt operation list in step with the history.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EditHistoryTest {
+
+    /** A Mask step costs 48 bytes, so four fit and the fifth evicts the oldest. */
+    private static final int BUDGET = 200;
+    private static final int KEPT = 4;
+
+    @Test
+    public void evictedStepsStayAppliedButCannotBeUndone() {
+        EditHistory history = new EditHistory(BUDGET);
+        List<EditPipeline.Op> pushed = pushMasks(history, 7);
+        assertEquals(pushed, history.current().getOps());
+
+        for (int i = 0; i < KEPT; i++) {
+            assertTrue("undo " + i, history.canUndo());
+            history.undo();
+            assertEquals(pushed.subList(0, pushed.size() - i - 1), history.current().getOps());
+        }
+        assertFalse(history.canUndo());
+        // The three evicted steps were folded into the base.
+        assertEquals(pushed.subList(0, pushed.size() - KEPT), history.current().getOps());
+        history.undo();
+        assertEquals(pushed.size() - KEPT, history.current().getOps().size());
+    }
+
+    @Test
+    public void redoRestoresUndoneStepsInOrder() {
+        EditHistory history = new EditHistory(BUDGET);
+        List<EditPipeline.Op> pushed = pushMasks(history, 6);
+        history.undo();
+        history.undo();
+        history.undo();
+
+        for (int i = 3; i > 0; i--) {
+            assertTrue(history.canRedo());
+            history.redo();
+            assertEquals(pushed.subList(0, pushed.size() - i + 1), history.current().getOps());
+        }
+        assertFalse(history.canRedo());
+        history.redo();
+        assertEquals(pushed, history.current().getOps());
+    }
+
+    @Test
+    public void pushAfterUndoDropsRedoTail() {
+        EditHistory history = new EditHistory(BUDGET);
+        List<EditPipeline.Op> pushed = pushMasks(history, 6);
+        history.undo();
+        history.undo();
+        assertTrue(history.canRedo());
+
+        EditPipeline.Op crop = new EditPipeline.Crop(new RectF(0f, 0f, 0.5f, 0.5f));
+        history.push(crop);
+        assertFalse(history.canRedo());
+        List<EditPipeline.Op> expected = new ArrayList<>(pushed.subList(0, pushed.size() - 2));
+        expected.add(crop);
+        assertEquals(expected, history.current().getOps());
+
+        // The dropped steps do not come back through undo or redo.
+        history.undo();
+        assertEquals(expected.subList(0, expected.size() - 1), history.current().getOps());
+        history.redo();
+        assertEquals(expected, history.current().getOps());
+    }
+
+    @Test
+    public void budgetEvictsWhileRedoIsPending() {
+        EditHistory history = new EditHistory(BUDGET);
+        List<EditPipeline.Op> pushed = pushMasks(history, KEPT);
+        history.undo();
+        EditPipeline.Op mask = new EditPipeline.Mask(EditPipeline.Mask.CONNECTED_SOFT);
+        history.push(mask);
+        history.push(new EditPipeline.Mask(EditPipeline.Mask.ALL_WHITE));
+
+        int undos = 0;
+        while (history.canUndo()) {
+            history.undo();
+            undos++;
+        }
+        assertEquals(KEPT, undos);
+        // One of the first three steps was evicted into the base.
+        assertEquals(pushed.subList(0, 1), history.current().getOps());
+        while (history.canRedo()) history.redo();
+        List<EditPipeline.Op> ops = history.current().getOps();
+        assertEquals(KEPT + 1, ops.size());
+        assertEquals(pushed.subList(0, KEPT - 1), ops.subList(0, KEPT - 1));
+        assertEquals(mask, ops.get(KEPT - 1));
+    }
+
+    private static List<EditPipeline.Op> pushMasks(EditHistory history, int count) {
+        List<EditPipeline.Op> pushed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EditPipeline.Op op = new EditPipeline.Mask(i % 3);
+            history.push(op);
+            pushed.add(op);
+        }
+        return pushed;
+    }
+}
@@ -0,0 +1,63 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Render planning: the working bitmap must stay within the source resolution even when a
+ * sticker render scales a small final crop up.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EditPipelineTest {
+
+    private static final int SOURCE_W = 2048;
+    private static final int SOURCE_H = 1536;
+
+    @Test
+    public void maskThenCropStartsAtSourceResolution() {
+        EditPipeline pipeline = EditPipeline.empty()
+                .plus(new EditPipeline.Mask(EditPipeline.Mask.CONNECTED))
+                .plus(new EditPipeline.Crop(new RectF(0.45f, 0.45f, 0.55f, 0.55f)));
+        float scale = pipeline.stickerScale(SOURCE_W, SOURCE_H, ImageHelper.STICKER_SIZE);
+        assertTrue("final crop is scaled up", scale > 1f);
+
+        EditPipeline.Plan plan = pipeline.plan(SOURCE_W, SOURCE_H, scale);
+        assertEquals(0, plan.start);
+        assertEquals(1, plan.lastCrop);
+        assertEquals(1f, plan.workScale, 0f);
+        assertTrue(plan.startWidth() <= SOURCE_W);
+        assertTrue(plan.startHeight() <= SOURCE_H);
+    }
+
+    @Test
+    public void cropThenMaskStartsAtCroppedCanvas() {
+        EditPipeline pipeline = EditPipeline.empty()
+                .plus(new EditPipeline.Crop(new RectF(0.45f, 0.45f, 0.55f, 0.55f)))
+                .plus(new EditPipeline.Mask(EditPipeline.Mask.CONNECTED));
+        float scale = pipeline.stickerScale(SOURCE_W, SOURCE_H, ImageHelper.STICKER_SIZE);
+
+        EditPipeline.Plan plan = pipeline.plan(SOURCE_W, SOURCE_H, scale);
+        assertEquals(1, plan.start);
+        assertEquals(-1, plan.lastCrop);
+        // The final canvas is rendered straight at sticker size.
+        assertEquals(ImageHelper.STICKER_SIZE, Math.min(plan.startWidth(), plan.startHeight()));
+    }
+
+    @Test
+    public void previewScaleIsNotRaised() {
+        EditPipeline pipeline = EditPipeline.empty()
+                .plus(new EditPipeline.Mask(EditPipeline.Mask.ALL_WHITE))
+                .plus(new EditPipeline.Crop(new RectF(0f, 0f, 0.5f, 0.5f)));
+
+        EditPipeline.Plan plan = pipeline.plan(SOURCE_W, SOURCE_H, 0.25f);
+        assertEquals(0.25f, plan.workScale, 0f);
+        assertEquals(SOURCE_W / 4, plan.startWidth());
+        assertEquals(SOURCE_H / 4, plan.startHeight());
+    }
+}
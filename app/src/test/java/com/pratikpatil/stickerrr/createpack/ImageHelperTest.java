@@ -0,0 +1,111 @@
+package com.pratikpatil.stickerrr.createpack;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * The masked near-white test in {@link ImageHelper#clearNearWhite} must clear exactly the pixels
+ * the original per-channel comparison did.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageHelperTest {
+
+    @Test
+    public void clearNearWhiteMatchesChannelThresholdOnRandomPixels() {
+        Random random = new Random(7);
+        int[] pixels = new int[64 * 1024];
+        for (int i = 0; i < pixels.length; i++) {
+            // Bias channels toward the threshold so both outcomes are common.
+            int r = 200 + random.nextInt(56);
+            int g = 200 + random.nextInt(56);
+            int b = 200 + random.nextInt(56);
+            pixels[i] = (random.nextInt(256) << 24) | (r << 16) | (g << 8) | b;
+        }
+        assertSameAsReference(pixels);
+    }
+
+    @Test
+    public void clearNearWhiteMatchesChannelThresholdAtBoundary() {
+        int[] levels = {0, 15, 16, 239, 240, 241, 254, 255};
+        int[] alphas = {0x00, 0x80, 0xFF};
+        int[] pixels = new int[levels.length * levels.length * levels.length * alphas.length];
+        int i = 0;
+        for (int a : alphas) {
+            for (int r : levels) {
+                for (int g : levels) {
+                    for (int b : levels) {
+                        pixels[i++] = (a << 24) | (r << 16) | (g << 8) | b;
+                    }
+                }
+            }
+        }
+        assertSameAsReference(pixels);
+    }
+
+    @Test
+    public void clearNearWhiteOnlyTouchesRange() {
+        int[] pixels = {0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF};
+        ImageHelper.clearNearWhite(pixels, 1, 3);
+        assertArrayEquals(new int[]{0xFFFFFFFF, 0, 0, 0xFFFFFFFF}, pixels);
+    }
+
+    /**
+     * Not a pass/fail benchmark: times the masked test against the per-channel predicate on a
+     * sticker-sized and a 12MP pixel array and prints the best of several runs.
+     */
+    @Test
+    public void clearNearWhiteTiming() {
+        int[][] sizes = {{512, 512}, {4000, 3000}};
+        for (int[] size : sizes) {
+            int[] source = new int[size[0] * size[1]];
+            Random random = new Random(size[0]);
+            for (int i = 0; i < source.length; i++) {
+                // About half near white, like a product shot on a white background.
+                source[i] = random.nextBoolean() ? 0xFFF8F8F8 : 0xFF000000 | random.nextInt(0x01000000);
+            }
+            int[] work = new int[source.length];
+            long masked = Long.MAX_VALUE;
+            long channels = Long.MAX_VALUE;
+            for (int run = 0; run < 7; run++) {
+                System.arraycopy(source, 0, work, 0, source.length);
+                long start = System.nanoTime();
+                ImageHelper.clearNearWhite(work, 0, work.length);
+                masked = Math.min(masked, System.nanoTime() - start);
+
+                System.arraycopy(source, 0, work, 0, source.length);
+                start = System.nanoTime();
+                referenceClear(work);
+                channels = Math.min(channels, System.nanoTime() - start);
+            }
+            System.out.println(String.format(Locale.US, "clearNearWhite %dx%d: mask %.2f ms, per-channel %.2f ms",
+                    size[0], size[1], masked / 1e6, channels / 1e6));
+        }
+    }
+
+    /** The original removeBackground loop: each channel compared with 240. */
+    private static void referenceClear(int[] pixels) {
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int r = (p >> 16) & 0xff;
+            int g = (p >> 8) & 0xff;
+            int b = p & 0xff;
+            if (r >= 240 && g >= 240 && b >= 240) {
+                pixels[i] = 0;
+            }
+        }
+    }
+
+    private static void assertSameAsReference(int[] pixels) {
+        int[] expected = pixels.clone();
+        referenceClear(expected);
+        int[] actual = pixels.clone();
+        ImageHelper.clearNearWhite(actual, 0, actual.length);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,80 @@
+package com.pratikpatil.stickerrr.stickerapi;
+
+import com.pratikpatil.stickerrr.createpack.ContentsJsonWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/** The sidecar is only used while every image still has its recorded size and mtime. */
+@RunWith(RobolectricTestRunner.class)
+public class BinaryPackManifestTest {
+
+    private File packDir;
+    private File contentsFile;
+
+    @Before
+    public void setUp() throws IOException {
+        packDir = new File(RuntimeEnvironment.getApplication().getFilesDir(), "sticker_packs/pack_bin");
+        packDir.mkdirs();
+        writeFile("tray.png", 10);
+        List<Sticker> stickers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            writeFile("sticker_" + i + ".webp", 100 + i);
+            stickers.add(new Sticker("sticker_" + i + ".webp", Collections.singletonList("😀"), ""));
+        }
+        StickerPack pack = new StickerPack("pack_bin", "Pack", "Test", "tray.png",
+                "", "", "", "", "1", false, false);
+        pack.setStickers(stickers);
+        ContentsJsonWriter.write(packDir, pack, "", "");
+        contentsFile = new File(packDir, "contents.json");
+    }
+
+    @Test
+    public void freshSidecarServesSizes() {
+        List<StickerPack> packs = BinaryPackManifest.read(contentsFile);
+        assertNotNull(packs);
+        assertEquals(101, packs.get(0).getStickers().get(1).size);
+    }
+
+    @Test
+    public void rewrittenStickerInvalidatesSidecar() throws IOException {
+        File image = writeFile("sticker_1.webp", 500);
+        image.setLastModified(image.lastModified() + 5000);
+        assertNull(BinaryPackManifest.read(contentsFile));
+    }
+
+    @Test
+    public void touchedStickerWithSameSizeInvalidatesSidecar() {
+        File image = new File(packDir, "sticker_2.webp");
+        image.setLastModified(image.lastModified() + 5000);
+        assertNull(BinaryPackManifest.read(contentsFile));
+    }
+
+    @Test
+    public void rewrittenTrayInvalidatesSidecar() throws IOException {
+        writeFile("tray.png", 20);
+        assertNull(BinaryPackManifest.read(contentsFile));
+    }
+
+    private File writeFile(String name, int length) throws IOException {
+        File file = new File(packDir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[length]);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,240 @@
+package com.pratikpatil.stickerrr.stickerapi;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The streaming {@link ContentFileParser} must accept and reject exactly what the org.json parser
+ * it replaced ({@link LegacyContentFileParser}) did, with the same first error.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ContentFileParserTest {
+
+    private static final String INVALID_JSON = "Invalid contents.json";
+    private static final String PACK_FIELDS = "\"identifier\":\"p1\",\"name\":\"Pack\",\"publisher\":\"Me\","
+            + "\"tray_image_file\":\"tray.png\"";
+    private static final String STICKERS = "\"stickers\":["
+            + "{\"image_file\":\"s0.webp\",\"emojis\":[\"a\"]},"
+            + "{\"image_file\":\"s1.webp\",\"emojis\":[\"b\"],\"accessibility_text\":\"two\"},"
+            + "{\"image_file\":\"s2.webp\"}]";
+
+    @Test
+    public void validPack() throws IOException {
+        List<StickerPack> packs = assertSameResult(root(pack(PACK_FIELDS + "," + STICKERS)));
+        assertEquals(3, packs.get(0).getStickers().size());
+    }
+
+    @Test
+    public void missingOrEmptyPackFields() throws IOException {
+        assertSameResult(root(pack("\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"\",\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"p1\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"p1\",\"name\":\"Pack\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"p1\",\"name\":\"Pack\",\"publisher\":\"Me\"," + STICKERS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"image_data_version\":\"\"," + STICKERS)));
+    }
+
+    @Test
+    public void nullAndNonStringValues() throws IOException {
+        assertSameResult(root(pack("\"identifier\":null,\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"p1\",\"name\":123,\"publisher\":true,\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"image_data_version\":2," + STICKERS)));
+    }
+
+    @Test
+    public void traversalInIdentifierOrFileName() throws IOException {
+        assertSameResult(root(pack("\"identifier\":\"../x\",\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack("\"identifier\":\"a/b\",\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"," + STICKERS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"../s.webp\"}]")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"d/s.webp\"}]")));
+    }
+
+    @Test
+    public void stickerFileRules() throws IOException {
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"s.png\"}]")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"emojis\":[\"a\"]}]")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"\"}]")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[]")));
+    }
+
+    @Test
+    public void packFieldErrorIsReportedBeforeStickerError() throws IOException {
+        assertSameResult(root(pack("\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\","
+                + "\"stickers\":[{\"image_file\":\"s.png\"}]")));
+        assertSameResult(root(pack("\"stickers\":[{\"image_file\":\"s.png\"}],"
+                + "\"name\":\"Pack\",\"publisher\":\"Me\",\"tray_image_file\":\"t.png\"")));
+    }
+
+    @Test
+    public void animatedAndAvoidCacheFlags() throws IOException {
+        String[] values = {"true", "false", "\"true\"", "\"TRUE\"", "\"yes\"", "1", "null", "{}"};
+        for (String value : values) {
+            StickerPack pack = assertSameResult(root(pack(PACK_FIELDS + ",\"animated_sticker_pack\":" + value
+                    + ",\"avoid_cache\":" + value + "," + STICKERS))).get(0);
+            assertNotNull(value, pack);
+        }
+    }
+
+    @Test
+    public void emojiCapAndEmptyEntries() throws IOException {
+        List<StickerPack> packs = assertSameResult(root(pack(PACK_FIELDS
+                + ",\"stickers\":[{\"image_file\":\"s.webp\",\"emojis\":[\"a\",\"b\",\"c\",\"d\",\"e\"]},"
+                + "{\"image_file\":\"t.webp\",\"emojis\":[\"\",null,\"a\",\"b\"]}]")));
+        assertEquals(3, packs.get(0).getStickers().get(0).emojis.size());
+    }
+
+    @Test
+    public void duplicateFieldsKeepTheLastValue() throws IOException {
+        assertSameResult(root(pack("\"identifier\":\"first\"," + PACK_FIELDS + "," + STICKERS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"bad.png\"}]," + STICKERS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"a.webp\",\"image_file\":\"b.webp\","
+                + "\"emojis\":[\"a\"],\"emojis\":[\"b\",\"c\"]}]")));
+        assertSameResult("{\"sticker_packs\":[" + pack("\"name\":\"x\"") + "],\"sticker_packs\":["
+                + pack(PACK_FIELDS + "," + STICKERS) + "]}");
+    }
+
+    @Test
+    public void rootLevelErrors() throws IOException {
+        assertSameResult("{\"android_play_store_link\":\"x\"}");
+        assertSameResult("{\"sticker_packs\":[]}");
+        assertSameResult("{\"sticker_packs\":[" + pack(PACK_FIELDS + "," + STICKERS) + ","
+                + pack("\"identifier\":\"p2\"," + STICKERS) + "]}");
+    }
+
+    @Test
+    public void structuralErrors() throws IOException {
+        assertSameResult("");
+        assertSameResult("[]");
+        assertSameResult("{\"sticker_packs\":[{");
+        assertSameResult("{\"sticker_packs\":{}}");
+        assertSameResult("{\"sticker_packs\":[\"p\"]}");
+        assertSameResult(root(pack(PACK_FIELDS)));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":\"s.webp\"")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[\"s.webp\"]")));
+        assertSameResult(root(pack(PACK_FIELDS + ",\"stickers\":[{\"image_file\":\"s.webp\",\"emojis\":\"a\"}]")));
+    }
+
+    /**
+     * Not a pass/fail benchmark: parses a 30-sticker pack with both parsers and prints time and,
+     * where the JVM reports it, bytes allocated per parse.
+     */
+    @Test
+    public void timingAgainstOrgJson() throws IOException {
+        StringBuilder stickers = new StringBuilder("\"stickers\":[");
+        for (int i = 0; i < 30; i++) {
+            if (i > 0) stickers.append(',');
+            stickers.append("{\"image_file\":\"sticker_").append(i).append(".webp\",\"emojis\":[\"a\",\"b\"],")
+                    .append("\"accessibility_text\":\"Sticker number ").append(i).append("\"}");
+        }
+        stickers.append(']');
+        byte[] json = root(pack(PACK_FIELDS + ",\"publisher_website\":\"https://example.com\","
+                + stickers)).getBytes(StandardCharsets.UTF_8);
+        assertSameResult(new String(json, StandardCharsets.UTF_8));
+
+        int warmup = 300;
+        int runs = 2000;
+        for (int i = 0; i < warmup; i++) {
+            LegacyContentFileParser.parseStickerPacks(new ByteArrayInputStream(json));
+            ContentFileParser.parseStickerPacks(new ByteArrayInputStream(json));
+        }
+        long[] legacy = measure(json, runs, true);
+        long[] streaming = measure(json, runs, false);
+        System.out.println(String.format(Locale.US,
+                "contents.json, 30 stickers, %d bytes: org.json %.1f us %s, JsonReader %.1f us %s",
+                json.length, legacy[0] / 1e3 / runs, bytes(legacy[1], runs),
+                streaming[0] / 1e3 / runs, bytes(streaming[1], runs)));
+    }
+
+    /** {nanos, allocated bytes or -1} for runs parses. */
+    private static long[] measure(byte[] json, int runs, boolean legacy) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = allocation != null ? allocation.getThreadAllocatedBytes(thread) : 0L;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            if (legacy) {
+                LegacyContentFileParser.parseStickerPacks(new ByteArrayInputStream(json));
+            } else {
+                ContentFileParser.parseStickerPacks(new ByteArrayInputStream(json));
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = allocation != null ? allocation.getThreadAllocatedBytes(thread) - bytesBefore : -1L;
+        return new long[]{nanos, bytes};
+    }
+
+    private static String bytes(long total, int runs) {
+        return total < 0 ? "(allocation n/a)" : (total / runs) + " B";
+    }
+
+    private static String root(String pack) {
+        return "{\"android_play_store_link\":\"a\",\"ios_app_store_link\":\"i\",\"sticker_packs\":[" + pack + "]}";
+    }
+
+    private static String pack(String fields) {
+        return "{" + fields + "}";
+    }
+
+    /**
+     * Both parsers must either fail with an IllegalStateException carrying the same message
+     * (syntax and type errors only need to agree that the JSON is invalid), or return equal packs.
+     */
+    private static List<StickerPack> assertSameResult(String json) throws IOException {
+        List<StickerPack> expected;
+        try {
+            expected = LegacyContentFileParser.parseStickerPacks(stream(json));
+        } catch (IllegalStateException legacyError) {
+            try {
+                ContentFileParser.parseStickerPacks(stream(json));
+                fail(json + ": expected \"" + legacyError.getMessage() + "\"");
+            } catch (IllegalStateException e) {
+                if (legacyError.getMessage().startsWith(INVALID_JSON)) {
+                    assertTrue(json + ": " + e.getMessage(), e.getMessage().startsWith(INVALID_JSON));
+                } else {
+                    assertEquals(json, legacyError.getMessage(), e.getMessage());
+                }
+            }
+            return null;
+        }
+        List<StickerPack> actual = ContentFileParser.parseStickerPacks(stream(json));
+        assertEquals(json, describe(expected), describe(actual));
+        return actual;
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String describe(List<StickerPack> packs) {
+        StringBuilder sb = new StringBuilder();
+        for (StickerPack p : packs) {
+            sb.append(p.identifier).append('|').append(p.name).append('|').append(p.publisher).append('|')
+                    .append(p.trayImageFile).append('|').append(p.publisherEmail).append('|')
+                    .append(p.publisherWebsite).append('|').append(p.privacyPolicyWebsite).append('|')
+                    .append(p.licenseAgreementWebsite).append('|').append(p.imageDataVersion).append('|')
+                    .append(p.avoidCache).append('|').append(p.animatedStickerPack).append('|')
+                    .append(p.androidPlayStoreLink).append('|').append(p.iosAppStoreLink).append('\n');
+            for (Sticker s : p.getStickers()) {
+                sb.append("  ").append(s.imageFileName).append('|').append(s.emojis).append('|')
+                        .append(s.accessibilityText).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.pratikpatil.stickerrr.stickerapi;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.pratikpatil.stickerrr.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provider queries are served from {@link StickerPackIndex}; a burst of them must not re-parse
+ * contents.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StickerContentProviderTest {
+
+    private static final String AUTHORITY = BuildConfig.CONTENT_PROVIDER_AUTHORITY;
+
+    private Context context;
+    private StickerContentProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        writePack("pack_a", "Pack A");
+        writePack("pack_b", "Pack B");
+        provider = Robolectric.buildContentProvider(StickerContentProvider.class).create(AUTHORITY).get();
+    }
+
+    @Test
+    public void burstOfQueriesParsesEachContentsJsonOnce() {
+        for (int i = 0; i < 50; i++) {
+            assertEquals(2, count(query("metadata")));
+            assertEquals(1, count(query("metadata/pack_a")));
+            assertEquals(2, count(query("stickers/pack_b")));
+        }
+        assertEquals(2, provider.getPackIndex().getParseCount());
+    }
+
+    @Test
+    public void queryRightAfterWriteSeesNewContents() throws IOException {
+        assertEquals(1, count(query("metadata/pack_a")));
+        writePack("pack_a", "Pack A renamed");
+        // FileObserver events may not have arrived yet; the write path invalidates synchronously.
+        StickerContentProvider.notifyPacksChanged(context);
+        try (Cursor cursor = query("metadata/pack_a")) {
+            cursor.moveToFirst();
+            assertEquals("Pack A renamed",
+                    cursor.getString(cursor.getColumnIndexOrThrow(StickerContentProvider.STICKER_PACK_NAME_IN_QUERY)));
+        }
+        assertEquals(3, provider.getPackIndex().getParseCount());
+    }
+
+    private Cursor query(String path) {
+        Uri uri = Uri.parse("content://" + AUTHORITY + "/" + path);
+        return provider.query(uri, null, null, null, null);
+    }
+
+    private static int count(Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void writePack(String identifier, String name) throws IOException {
+        File dir = new File(context.getFilesDir(), "sticker_packs/" + identifier);
+        dir.mkdirs();
+        String json = "{\"sticker_packs\":[{"
+                + "\"identifier\":\"" + identifier + "\","
+                + "\"name\":\"" + name + "\","
+                + "\"publisher\":\"Test\","
+                + "\"tray_image_file\":\"tray.png\","
+                + "\"image_data_version\":\"1\","
+                + "\"stickers\":["
+                + "{\"image_file\":\"sticker_0.webp\",\"emojis\":[\"\\ud83d\\ude00\"]},"
+                + "{\"image_file\":\"sticker_1.webp\",\"emojis\":[\"\\ud83d\\ude01\"]}"
+                + "]}]}";
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "contents.json"))) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}